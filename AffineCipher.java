@@ -15,35 +15,41 @@ public class AffineCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, int a, int b, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
-        
+        return compile(a, b).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles an Affine key pair into a reusable key.
+     * 
+     * @param a The multiplicative key (must be coprime with 26)
+     * @param b The additive key
+     * @return The compiled key
+     */
+    public static CompiledKey compile(int a, int b) {
         // Check if a is coprime with 26
-        if (gcd(a, 26) != 1) {
+        if (gcd(Math.floorMod(a, 26), 26) != 1) {
             throw new IllegalArgumentException("The value of 'a' must be coprime with 26");
         }
+        return new CompiledKey(Math.floorMod(a, 26), Math.floorMod(b, 26));
+    }
+    
+    /**
+     * A compiled Affine key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey extends MonoalphabeticKey {
         
-        for (char character : text.toCharArray()) {
-            if (Character.isLetter(character)) {
-                char base = Character.isUpperCase(character) ? 'A' : 'a';
-                int x = character - base;
-                
-                int resultValue;
-                if (encrypt) {
-                    // E(x) = (ax + b) mod 26
-                    resultValue = (a * x + b) % 26;
-                } else {
-                    // D(y) = a^-1 * (y - b) mod 26
-                    int aInverse = multiplicativeInverse(a, 26);
-                    resultValue = (aInverse * (x - b + 26)) % 26;
-                }
-                
-                result.append((char) (resultValue + base));
-            } else {
-                result.append(character);
-            }
+        private CompiledKey(int a, int b) {
+            super(mapping(a, b));
         }
         
-        return result.toString();
+        private static int[] mapping(int a, int b) {
+            // E(x) = (ax + b) mod 26; decryption uses the inverted table
+            int[] mapping = new int[26];
+            for (int x = 0; x < 26; x++) {
+                mapping[x] = (a * x + b) % 26;
+            }
+            return mapping;
+        }
     }
     
     /**
@@ -56,19 +62,6 @@ public class AffineCipher {
         return gcd(b, a % b);
     }
     
-    /**
-     * Calculates the multiplicative inverse of a number modulo m.
-     */
-    private static int multiplicativeInverse(int a, int m) {
-        a = a % m;
-        for (int x = 1; x < m; x++) {
-            if ((a * x) % m == 1) {
-                return x;
-            }
-        }
-        return 1;
-    }
-    
     public static void main(String[] args) {
         String plaintext = "HELLO";
         int a = 5;  // Must be coprime with 26
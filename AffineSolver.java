@@ -0,0 +1,179 @@
+/**
+ * Affine Solver
+ * Finds the most likely Caesar and Affine keys for a ciphertext by trying them all.
+ * There are only 312 Affine keys (12 values of a coprime with 26, times 26 values of b),
+ * and Caesar shifts are the 26 keys with a = 1.
+ * 
+ * A monoalphabetic key only renames letters, so the plaintext letter counts under a key
+ * are the ciphertext letter counts permuted: plaintext letter x appears as often as its
+ * ciphertext letter (a * x + b) mod 26. The text is therefore counted once, every key is
+ * scored from the permuted counts by the log-likelihood of English letter frequencies,
+ * and only the best few keys are used to decrypt the text.
+ */
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class AffineSolver {
+    
+    // The multiplicative keys coprime with 26
+    private static final int[] MULTIPLIERS = {1, 3, 5, 7, 9, 11, 15, 17, 19, 21, 23, 25};
+    
+    private static final double[] LOG_FREQUENCIES = new double[26];
+    
+    static {
+        for (int x = 0; x < 26; x++) {
+            LOG_FREQUENCIES[x] = Math.log(EnglishFitness.LETTER_FREQUENCIES[x]);
+        }
+    }
+    
+    /**
+     * A scored key.
+     */
+    public static final class Candidate {
+        private final int a;
+        private final int b;
+        private final double score;
+        private final String plaintext;
+        
+        private Candidate(int a, int b, double score, String plaintext) {
+            this.a = a;
+            this.b = b;
+            this.score = score;
+            this.plaintext = plaintext;
+        }
+        
+        /**
+         * Returns the multiplicative key (1 for a Caesar shift).
+         */
+        public int a() {
+            return a;
+        }
+        
+        /**
+         * Returns the additive key (the shift, for a Caesar key).
+         */
+        public int b() {
+            return b;
+        }
+        
+        /**
+         * Returns the log-likelihood of the decrypted letter counts under English letter
+         * frequencies. Higher is better.
+         */
+        public double score() {
+            return score;
+        }
+        
+        /**
+         * Returns the full decryption with this key.
+         */
+        public String plaintext() {
+            return plaintext;
+        }
+        
+        @Override
+        public String toString() {
+            return "a=" + a + " b=" + b + " score=" + score;
+        }
+    }
+    
+    /**
+     * Scores all 312 Affine keys (including the Caesar shifts) and decrypts the best.
+     * 
+     * @param ciphertext The ciphertext
+     * @param topK The number of results to return
+     * @return The best keys, best first, each with its plaintext
+     */
+    public static List<Candidate> search(String ciphertext, int topK) {
+        return search(ciphertext, MULTIPLIERS.length, topK);
+    }
+    
+    /**
+     * Scores the 26 Caesar shifts and decrypts the best.
+     * 
+     * @param ciphertext The ciphertext
+     * @param topK The number of results to return
+     * @return The best shifts, best first, each with its plaintext
+     */
+    public static List<Candidate> searchCaesar(String ciphertext, int topK) {
+        return search(ciphertext, 1, topK);
+    }
+    
+    private static List<Candidate> search(String ciphertext, int multipliers, int topK) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be at least 1");
+        }
+        
+        long[] counts = histogram(ciphertext);
+        
+        // The score of multiplier m with shift b goes in scores[m * 26 + b]
+        double[] scores = new double[multipliers * 26];
+        for (int m = 0; m < multipliers; m++) {
+            for (int b = 0; b < 26; b++) {
+                scores[m * 26 + b] = score(counts, MULTIPLIERS[m], b);
+            }
+        }
+        
+        // Only the best are decrypted; ties go to the smaller a, then the smaller b
+        List<Integer> best = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -scores[i]).thenComparingInt(i -> i))
+                .limit(topK)
+                .collect(Collectors.toList());
+        
+        List<Candidate> candidates = new ArrayList<>(best.size());
+        for (int i : best) {
+            int a = MULTIPLIERS[i / 26];
+            int b = i % 26;
+            candidates.add(new Candidate(a, b, scores[i], AffineCipher.process(ciphertext, a, b, false)));
+        }
+        return candidates;
+    }
+    
+    /**
+     * Scores one key from the ciphertext letter counts: plaintext letter x is counted
+     * as ciphertext letter (a * x + b) mod 26.
+     */
+    private static double score(long[] counts, int a, int b) {
+        double score = 0;
+        int y = b;
+        for (int x = 0; x < 26; x++) {
+            score += counts[y] * LOG_FREQUENCIES[x];
+            y = (y + a) % 26;
+        }
+        return score;
+    }
+    
+    /**
+     * Counts the ASCII letters of the text, case-insensitively. Other characters are
+     * left alone by the ciphers, so they are not counted.
+     */
+    private static long[] histogram(String text) {
+        long[] counts = new long[26];
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character >= 'A' && character <= 'Z') {
+                counts[character - 'A']++;
+            } else if (character >= 'a' && character <= 'z') {
+                counts[character - 'a']++;
+            }
+        }
+        return counts;
+    }
+    
+    public static void main(String[] args) {
+        String plaintext = "Meet me at the old mill by the river at noon, and bring the map.";
+        String ciphertext = AffineCipher.process(plaintext, 7, 12, true);
+        
+        System.out.println("Ciphertext: " + ciphertext);
+        for (Candidate candidate : search(ciphertext, 3)) {
+            System.out.println(candidate + ": " + candidate.plaintext());
+        }
+        
+        ciphertext = CaesarCipher.process(plaintext, 19, true);
+        Candidate best = searchCaesar(ciphertext, 1).get(0);
+        System.out.println("Caesar shift " + best.b() + ": " + best.plaintext());
+    }
+}
\ No newline at end of file
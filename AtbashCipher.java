@@ -4,6 +4,8 @@
  */
 public class AtbashCipher {
     
+    private static final CompiledKey KEY = new CompiledKey();
+    
     /**
      * Encrypts or decrypts text using the Atbash cipher.
      * (Atbash is its own inverse, so encryption and decryption are the same)
@@ -12,19 +14,36 @@ public class AtbashCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text) {
-        StringBuilder result = new StringBuilder();
+        return KEY.encrypt(text);
+    }
+    
+    /**
+     * Returns the Atbash key. Atbash has no key material, so a single shared
+     * instance is returned.
+     * 
+     * @return The compiled key
+     */
+    public static CompiledKey compile() {
+        return KEY;
+    }
+    
+    /**
+     * The compiled Atbash key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey extends MonoalphabeticKey {
         
-        for (char character : text.toCharArray()) {
-            if (Character.isLetter(character)) {
-                char base = Character.isUpperCase(character) ? 'A' : 'a';
-                // Mirror the character in the alphabet (A↔Z, B↔Y, etc.)
-                result.append((char) (base + 25 - (character - base)));
-            } else {
-                result.append(character);
-            }
+        private CompiledKey() {
+            super(mapping());
         }
         
-        return result.toString();
+        private static int[] mapping() {
+            // Mirror the character in the alphabet (A↔Z, B↔Y, etc.)
+            int[] mapping = new int[26];
+            for (int x = 0; x < 26; x++) {
+                mapping[x] = 25 - x;
+            }
+            return mapping;
+        }
     }
     
     public static void main(String[] args) {
@@ -13,30 +13,55 @@ public class AugustCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, String keyword, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
-        String cleanText = text.toUpperCase().replaceAll("[^A-Z]", "");
+        return compile(keyword).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a keyword into a reusable key.
+     * 
+     * @param keyword The keyword used for shifting
+     * @return The compiled key
+     */
+    public static CompiledKey compile(String keyword) {
         String cleanKeyword = keyword.toUpperCase().replaceAll("[^A-Z]", "");
         
-        int keyLength = cleanKeyword.length();
-        
-        for (int i = 0; i < cleanText.length(); i++) {
-            char textChar = cleanText.charAt(i);
-            char keyChar = cleanKeyword.charAt(i % keyLength);
-            
-            int textValue = textChar - 'A';
-            int keyValue = keyChar - 'A';
-            
-            int resultValue;
-            if (encrypt) {
-                resultValue = (textValue + keyValue) % 26;
-            } else {
-                resultValue = (textValue - keyValue + 26) % 26;
-            }
-            
-            result.append((char) (resultValue + 'A'));
+        if (cleanKeyword.isEmpty()) {
+            throw new IllegalArgumentException("Keyword cannot be empty");
         }
         
-        return result.toString();
+        int[] keyValues = new int[cleanKeyword.length()];
+        for (int i = 0; i < keyValues.length; i++) {
+            keyValues[i] = cleanKeyword.charAt(i) - 'A';
+        }
+        return new CompiledKey(keyValues);
+    }
+    
+    /**
+     * A compiled August key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey implements Cipher {
+        private final PolyalphabeticKey key;
+        
+        private CompiledKey(int[] keyValues) {
+            this.key = PolyalphabeticKey.of(keyValues, PolyalphabeticKey.Tableau.VIGENERE);
+        }
+        
+        @Override
+        public String encrypt(String text) {
+            return apply(text, true);
+        }
+        
+        @Override
+        public String decrypt(String text) {
+            return apply(text, false);
+        }
+        
+        private String apply(String text, boolean encrypt) {
+            // Only the letters are kept, upper-cased, and all of them are shifted
+            char[] chars = Letters.upperLetters(text);
+            key.transform(chars, 0, chars.length, 0, encrypt);
+            return new String(chars);
+        }
     }
     
     public static void main(String[] args) {
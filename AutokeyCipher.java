@@ -2,6 +2,16 @@
  * Autokey Cipher Implementation (also known as Running Key Cipher)
  * This cipher uses the plaintext itself as part of the key after an initial primer key.
  */
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 public class AutokeyCipher {
     
     /**
@@ -13,49 +23,178 @@ public class AutokeyCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, String primer, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
-        String cleanText = text.toUpperCase().replaceAll("[^A-Z]", "");
+        return compile(primer).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a primer into a reusable key.
+     * 
+     * @param primer The initial key value
+     * @return The compiled key
+     */
+    public static CompiledKey compile(String primer) {
         String cleanPrimer = primer.toUpperCase().replaceAll("[^A-Z]", "");
         
         if (cleanPrimer.isEmpty()) {
             throw new IllegalArgumentException("Primer cannot be empty");
         }
         
-        // Generate the full key using the primer and plaintext
-        StringBuilder keyStream = new StringBuilder(cleanPrimer);
+        int[] primerValues = new int[cleanPrimer.length()];
+        for (int i = 0; i < primerValues.length; i++) {
+            primerValues[i] = cleanPrimer.charAt(i) - 'A';
+        }
+        return new CompiledKey(primerValues);
+    }
+    
+    /**
+     * A compiled Autokey primer. Immutable and safe to share between threads.
+     * 
+     * The key for each letter is the primer letter or the plaintext letter primer-length
+     * places earlier, so encryption needs nothing but the plaintext and can be split into
+     * chunks that are encrypted in parallel. Decryption needs the plaintext it has just
+     * produced, but only the last primer-length letters of it, so it can be streamed.
+     */
+    public static final class CompiledKey implements Cipher {
+        // Below this many letters per chunk the serial loop is faster
+        private static final int MIN_CHUNK_SIZE = 64 * 1024;
         
-        if (encrypt) {
-            // For encryption, append plaintext to the primer
-            for (int i = 0; i < cleanText.length() - cleanPrimer.length(); i++) {
-                keyStream.append(cleanText.charAt(i));
-            }
+        // Size of the buffers the streaming decryption reads and writes through
+        private static final int BUFFER_SIZE = 8192;
+        
+        private final int[] primerValues;
+        
+        private CompiledKey(int[] primerValues) {
+            this.primerValues = primerValues;
         }
         
-        for (int i = 0; i < cleanText.length(); i++) {
-            char textChar = cleanText.charAt(i);
-            char keyChar;
+        @Override
+        public String encrypt(String text) {
+            char[] plain = Letters.upperLetters(text);
+            char[] result = new char[plain.length];
+            encryptRange(plain, result, 0, plain.length);
+            return new String(result);
+        }
+        
+        /**
+         * Encrypts text on the given pool. The result is identical to encrypt(text).
+         * 
+         * @param text The text to encrypt
+         * @param pool The pool to run on
+         * @return The encrypted text
+         */
+        public String encrypt(String text, ForkJoinPool pool) {
+            char[] plain = Letters.upperLetters(text);
+            char[] result = new char[plain.length];
             
-            if (encrypt || i < cleanPrimer.length()) {
-                keyChar = keyStream.charAt(i);
-            } else {
-                // For decryption beyond the primer length, use previously decrypted characters
-                keyChar = result.charAt(i - cleanPrimer.length());
+            int chunks = Math.min(pool.getParallelism() * 4, plain.length / MIN_CHUNK_SIZE);
+            if (chunks < 2) {
+                encryptRange(plain, result, 0, plain.length);
+                return new String(result);
             }
             
-            int textValue = textChar - 'A';
-            int keyValue = keyChar - 'A';
+            int chunkSize = (plain.length + chunks - 1) / chunks;
+            List<Callable<Void>> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int from = c * chunkSize;
+                int to = Math.min(plain.length, from + chunkSize);
+                tasks.add(() -> {
+                    encryptRange(plain, result, from, to);
+                    return null;
+                });
+            }
             
-            int resultValue;
-            if (encrypt) {
-                resultValue = (textValue + keyValue) % 26;
-            } else {
-                resultValue = (textValue - keyValue + 26) % 26;
+            try {
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while encrypting", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Chunk encryption failed", e.getCause());
             }
+            return new String(result);
+        }
+        
+        private void encryptRange(char[] plain, char[] result, int from, int to) {
+            int primerLength = primerValues.length;
             
-            result.append((char) (resultValue + 'A'));
+            for (int i = from; i < to; i++) {
+                // The key is the primer followed by the plaintext itself
+                int keyValue = i < primerLength ? primerValues[i] : plain[i - primerLength] - 'A';
+                result[i] = (char) ((plain[i] - 'A' + keyValue) % 26 + 'A');
+            }
         }
         
-        return result.toString();
+        @Override
+        public String decrypt(String text) {
+            char[] result = Letters.upperLetters(text);
+            int primerLength = primerValues.length;
+            
+            for (int i = 0; i < result.length; i++) {
+                // Beyond the primer length, use previously decrypted characters
+                int keyValue = i < primerLength ? primerValues[i] : result[i - primerLength] - 'A';
+                result[i] = (char) ((result[i] - 'A' - keyValue + 26) % 26 + 'A');
+            }
+            
+            return new String(result);
+        }
+        
+        /**
+         * Decrypts a stream of ciphertext into a stream of plaintext. Only the last
+         * primer-length plaintext letters are kept, in a ring buffer, so memory use does
+         * not grow with the message. Non-letters are dropped as in decrypt(String).
+         * 
+         * @param in The ciphertext (not closed)
+         * @param out The writer for the plaintext (not closed, but flushed)
+         * @throws IOException If reading or writing fails
+         */
+        public void decrypt(Reader in, Writer out) throws IOException {
+            int primerLength = primerValues.length;
+            int[] ring = primerValues.clone();
+            int ringIndex = 0;
+            char[] input = new char[BUFFER_SIZE];
+            char[] output = new char[BUFFER_SIZE];
+            int buffered = 0;
+            
+            int count;
+            while ((count = in.read(input, 0, input.length)) != -1) {
+                for (int i = 0; i < count; i++) {
+                    char character = input[i];
+                    String expansion = null;
+                    if (character >= 'a' && character <= 'z') {
+                        character = (char) (character - 'a' + 'A');
+                    } else if (character >= 128) {
+                        // Upper-case it the way String.toUpperCase() would, e.g. the German sharp s into "SS"
+                        expansion = String.valueOf(character).toUpperCase();
+                    }
+                    
+                    for (int j = 0; j < (expansion == null ? 1 : expansion.length()); j++) {
+                        char letter = expansion == null ? character : expansion.charAt(j);
+                        if (letter < 'A' || letter > 'Z') {
+                            continue;
+                        }
+                        
+                        // The ring holds the key for the next primer-length letters: the
+                        // primer at first, then the plaintext as it is produced
+                        int value = (letter - 'A' - ring[ringIndex] + 26) % 26;
+                        ring[ringIndex] = value;
+                        if (++ringIndex == primerLength) {
+                            ringIndex = 0;
+                        }
+                        
+                        output[buffered++] = (char) (value + 'A');
+                        if (buffered == output.length) {
+                            out.write(output, 0, buffered);
+                            buffered = 0;
+                        }
+                    }
+                }
+            }
+            
+            out.write(output, 0, buffered);
+            out.flush();
+        }
     }
     
     public static void main(String[] args) {
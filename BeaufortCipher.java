@@ -13,31 +13,39 @@ public class BeaufortCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, String keyword) {
-        StringBuilder result = new StringBuilder();
+        return compile(keyword).encrypt(text);
+    }
+    
+    /**
+     * Compiles a keyword into a reusable key.
+     * 
+     * @param keyword The keyword used for encryption/decryption
+     * @return The compiled key
+     */
+    public static CompiledKey compile(String keyword) {
         String cleanKeyword = keyword.toUpperCase().replaceAll("[^A-Z]", "");
         
         if (cleanKeyword.isEmpty()) {
             throw new IllegalArgumentException("Keyword cannot be empty");
         }
         
-        int keyIndex = 0;
-        
-        for (char character : text.toCharArray()) {
-            if (Character.isLetter(character)) {
-                char base = Character.isUpperCase(character) ? 'A' : 'a';
-                char keyChar = cleanKeyword.charAt(keyIndex % cleanKeyword.length());
-                
-                // Beaufort formula: E(x) = D(x) = (key - text) mod 26
-                int resultValue = (keyChar - (character - base) + 26) % 26;
-                
-                result.append((char) (resultValue + base));
-                keyIndex++;
-            } else {
-                result.append(character);
-            }
+        // The key term is the keyword character itself (not its alphabet index),
+        // reduced mod 26, matching the formula (key - text) mod 26
+        int[] keyValues = new int[cleanKeyword.length()];
+        for (int i = 0; i < keyValues.length; i++) {
+            keyValues[i] = cleanKeyword.charAt(i) % 26;
+        }
+        return new CompiledKey(keyValues);
+    }
+    
+    /**
+     * A compiled Beaufort key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey extends PolyalphabeticKey {
+        private CompiledKey(int[] keyValues) {
+            // Beaufort formula: E(x) = D(x) = (key - text) mod 26
+            super(keyValues, Tableau.BEAUFORT);
         }
-        
-        return result.toString();
     }
     
     public static void main(String[] args) {
@@ -13,23 +13,49 @@ public class CaesarCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, int shift, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
+        return compile(shift).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a shift into a reusable key.
+     * 
+     * @param shift The number of positions to shift (key)
+     * @return The compiled key
+     */
+    public static CompiledKey compile(int shift) {
+        return new CompiledKey(shift);
+    }
+    
+    /**
+     * A compiled Caesar key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey extends MonoalphabeticKey {
+        private final byte[] encryptStream;
+        private final byte[] decryptStream;
         
-        // Adjust shift for decryption
-        if (!encrypt) {
-            shift = 26 - (shift % 26);
+        private CompiledKey(int shift) {
+            super(mapping(Math.floorMod(shift, 26)));
+            int[] shifts = {Math.floorMod(shift, 26)};
+            this.encryptStream = ShiftKernel.keyStream(shifts, true);
+            this.decryptStream = ShiftKernel.keyStream(shifts, false);
         }
         
-        for (char character : text.toCharArray()) {
-            if (Character.isLetter(character)) {
-                char base = Character.isUpperCase(character) ? 'A' : 'a';
-                result.append((char) ((((character - base) + shift) % 26) + base));
-            } else {
-                result.append(character);
+        @Override
+        public int transform(byte[] buf, int off, int len, int keyIndex, boolean encrypt) {
+            // The table lookup is already branch-free; only the vector kernel beats it
+            if (ShiftKernel.VECTORIZED) {
+                return ShiftKernel.shift(buf, off, len, encrypt ? encryptStream : decryptStream, 1, 0);
             }
+            return super.transform(buf, off, len, keyIndex, encrypt);
         }
         
-        return result.toString();
+        private static int[] mapping(int shift) {
+            int[] mapping = new int[26];
+            for (int x = 0; x < 26; x++) {
+                mapping[x] = (x + shift) % 26;
+            }
+            return mapping;
+        }
     }
     
     public static void main(String[] args) {
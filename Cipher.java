@@ -0,0 +1,35 @@
+/**
+ * Cipher Interface
+ * A compiled key: all validation and key derivation happens once when the key is
+ * compiled, after which the same immutable object can be applied to any number of
+ * messages from any number of threads.
+ */
+public interface Cipher {
+    
+    /**
+     * Encrypts text with this key.
+     * 
+     * @param text The text to encrypt
+     * @return The encrypted text
+     */
+    String encrypt(String text);
+    
+    /**
+     * Decrypts text with this key.
+     * 
+     * @param text The text to decrypt
+     * @return The decrypted text
+     */
+    String decrypt(String text);
+    
+    /**
+     * Encrypts or decrypts text with this key.
+     * 
+     * @param text The text to encrypt/decrypt
+     * @param encrypt True for encryption, false for decryption
+     * @return The encrypted/decrypted text
+     */
+    default String process(String text, boolean encrypt) {
+        return encrypt ? encrypt(text) : decrypt(text);
+    }
+}
\ No newline at end of file
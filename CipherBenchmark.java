@@ -0,0 +1,273 @@
+/**
+ * Cipher Benchmark
+ * Measures throughput and allocation rate of every cipher's process method across
+ * input sizes and key sizes, in the spirit of a JMH throughput run with the gc profiler:
+ * each case is warmed up, then timed over several fixed-length iterations, and the heap
+ * allocated by the benchmark thread is divided by the number of operations.
+ * 
+ * Usage: java -Xmx8g CipherBenchmark [name-filter]
+ * System properties:
+ *   bench.maxSize     largest input in bytes (default 1048576; 104857600 for the full run)
+ *   bench.iterations  timed iterations per case (default 5)
+ *   bench.millis      length of each iteration in milliseconds (default 1000)
+ */
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+public class CipherBenchmark {
+    
+    private static final int[] SIZES = {16, 1024, 64 * 1024, 1024 * 1024, 100 * 1024 * 1024};
+    
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    
+    // Result of a benchmarked call, kept so the JIT cannot drop the work
+    private static volatile Object sink;
+    
+    /**
+     * A single benchmark case: one cipher direction with one key.
+     */
+    private static final class Workload {
+        final String name;
+        final UnaryOperator<String> operation;
+        
+        Workload(String name, UnaryOperator<String> operation) {
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+    
+    private static List<Workload> workloads(Random random) {
+        List<Workload> workloads = new ArrayList<>();
+        
+        add(workloads, "Caesar shift=3", text -> CaesarCipher.process(text, 3, true), text -> CaesarCipher.process(text, 3, false));
+        add(workloads, "Atbash", AtbashCipher::process, AtbashCipher::process);
+        add(workloads, "Affine a=5,b=8", text -> AffineCipher.process(text, 5, 8, true), text -> AffineCipher.process(text, 5, 8, false));
+        
+        for (int length : new int[] {3, 16, 256}) {
+            String keyword = randomLetters(random, length);
+            String digits = randomDigits(random, length);
+            add(workloads, "Vigenere key=" + length, text -> VigenereCipher.process(text, keyword, true), text -> VigenereCipher.process(text, keyword, false));
+            add(workloads, "Beaufort key=" + length, text -> BeaufortCipher.process(text, keyword), text -> BeaufortCipher.process(text, keyword));
+            add(workloads, "VariantBeaufort key=" + length, text -> VariantBeaufortCipher.process(text, keyword, true), text -> VariantBeaufortCipher.process(text, keyword, false));
+            add(workloads, "Gronsfeld key=" + length, text -> GronsfeldCipher.process(text, digits, true), text -> GronsfeldCipher.process(text, digits, false));
+            add(workloads, "August key=" + length, text -> AugustCipher.process(text, keyword, true), text -> AugustCipher.process(text, keyword, false));
+            add(workloads, "Autokey primer=" + length, text -> AutokeyCipher.process(text, keyword, true), text -> AutokeyCipher.process(text, keyword, false));
+        }
+        
+        // The shift kernel alone on the mixed letters and spaces of the input, once through
+        // ShiftKernel.shift() (the vector path when the module is present) and once through
+        // the scalar loop, so the two rows show what the vector path gains on prose
+        int[] shifts = new int[16];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = random.nextInt(26);
+        }
+        byte[] encryptStream = ShiftKernel.keyStream(shifts, true);
+        byte[] decryptStream = ShiftKernel.keyStream(shifts, false);
+        String kernel = ShiftKernel.VECTORIZED ? "vector" : "scalar";
+        add(workloads, "Shift mixed key=16 " + kernel, text -> shiftLetters(text, encryptStream, shifts.length, false),
+                text -> shiftLetters(text, decryptStream, shifts.length, false));
+        add(workloads, "Shift mixed key=16 scalar only", text -> shiftLetters(text, encryptStream, shifts.length, true),
+                text -> shiftLetters(text, decryptStream, shifts.length, true));
+        
+        for (int n : new int[] {2, 3, 4}) {
+            Map<String, String> table = randomNGramTable(random, n);
+            add(workloads, "NGram n=" + n, text -> NGramCipher.process(text, table, n, true), text -> NGramCipher.process(text, table, n, false));
+        }
+        
+        for (int n : new int[] {2, 3, 5, 8}) {
+            int[][] matrix = randomInvertibleMatrix(random, n);
+            add(workloads, "Hill " + n + "x" + n, text -> HillCipher.process(text, matrix, true), text -> HillCipher.process(text, matrix, false));
+        }
+        
+        for (int rails : new int[] {3, 10, 100, 1000}) {
+            add(workloads, "RailFence rails=" + rails, text -> RailFenceCipher.process(text, rails, true), text -> RailFenceCipher.process(text, rails, false));
+        }
+        
+        for (String pattern : new String[] {"spiral", "snake", "diagonal"}) {
+            add(workloads, "Route 32x32 " + pattern, text -> RouteCipher.process(text, 32, 32, pattern, true), text -> RouteCipher.process(text, 32, 32, pattern, false));
+        }
+        add(workloads, "Route 32x32 spiral blocks", text -> RouteCipher.processBlocks(text, 32, 32, "spiral", true), text -> RouteCipher.processBlocks(text, 32, 32, "spiral", false));
+        
+        for (int length : new int[] {7, 26, 100}) {
+            String keyword = randomLetters(random, length);
+            add(workloads, "Myszkowski key=" + length, text -> MyszkowskiCipher.process(text, keyword, true), text -> MyszkowskiCipher.process(text, keyword, false));
+        }
+        
+        return workloads;
+    }
+    
+    private static void add(List<Workload> workloads, String name, UnaryOperator<String> encrypt, UnaryOperator<String> decrypt) {
+        workloads.add(new Workload(name + " encrypt", encrypt));
+        workloads.add(new Workload(name + " decrypt", decrypt));
+    }
+    
+    private static String shiftLetters(String text, byte[] keyStream, int period, boolean scalar) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        if (scalar) {
+            ShiftKernel.scalarShift(bytes, 0, bytes.length, keyStream, period, 0);
+        } else {
+            ShiftKernel.shift(bytes, 0, bytes.length, keyStream, period, 0);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+    
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0].toLowerCase() : "";
+        long maxSize = Long.getLong("bench.maxSize", 1024 * 1024);
+        int iterations = Integer.getInteger("bench.iterations", 5);
+        long millis = Long.getLong("bench.millis", 1000);
+        
+        Random random = new Random(42);
+        Map<Integer, String> inputs = new HashMap<>();
+        
+        System.out.printf("%-36s %10s %14s %12s %14s%n", "Benchmark", "Size", "ops/s", "MB/s", "B/op");
+        for (Workload workload : workloads(random)) {
+            if (!workload.name.toLowerCase().contains(filter)) {
+                continue;
+            }
+            
+            for (int size : SIZES) {
+                if (size > maxSize) {
+                    continue;
+                }
+                String input = inputs.computeIfAbsent(size, s -> randomText(new Random(s), s));
+                
+                try {
+                    run(workload, input, iterations, millis);
+                } catch (OutOfMemoryError e) {
+                    System.out.printf("%-36s %10d %14s%n", workload.name, size, "out of memory");
+                } catch (IllegalArgumentException e) {
+                    System.out.printf("%-36s %10d %14s%n", workload.name, size, e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private static void run(Workload workload, String input, int iterations, long millis) {
+        // Warm up for as long as one timed iteration
+        measure(workload, input, millis);
+        
+        double opsPerSecond = 0;
+        double bytesPerOp = 0;
+        for (int i = 0; i < iterations; i++) {
+            double[] result = measure(workload, input, millis);
+            opsPerSecond += result[0] / iterations;
+            bytesPerOp += result[1] / iterations;
+        }
+        
+        double megabytesPerSecond = opsPerSecond * input.length() / (1024.0 * 1024.0);
+        System.out.printf("%-36s %10d %14.1f %12.1f %14.0f%n", workload.name, input.length(),
+                opsPerSecond, megabytesPerSecond, bytesPerOp);
+    }
+    
+    /**
+     * Runs the workload repeatedly for the given time.
+     * 
+     * @return Operations per second and bytes allocated per operation
+     */
+    private static double[] measure(Workload workload, String input, long millis) {
+        long threadId = Thread.currentThread().getId();
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long operations = 0;
+        
+        do {
+            sink = workload.operation.apply(input);
+            operations++;
+        } while (System.nanoTime() < deadline);
+        
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new double[] {operations * 1e9 / elapsed, (double) allocated / operations};
+    }
+    
+    /**
+     * Generates English-like text: random words of letters separated by spaces and punctuation.
+     */
+    private static String randomText(Random random, int size) {
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            int wordLength = 1 + random.nextInt(9);
+            for (int i = 0; i < wordLength && text.length() < size; i++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            if (text.length() < size) {
+                text.append(random.nextInt(10) == 0 ? ". " : " ");
+            }
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+    
+    private static String randomLetters(Random random, int length) {
+        StringBuilder letters = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            letters.append((char) ('A' + random.nextInt(26)));
+        }
+        return letters.toString();
+    }
+    
+    private static String randomDigits(Random random, int length) {
+        StringBuilder digits = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+    
+    /**
+     * Builds a random one-to-one table over a few hundred n-grams.
+     */
+    private static Map<String, String> randomNGramTable(Random random, int n) {
+        Map<String, String> table = new HashMap<>();
+        Set<String> used = new HashSet<>();
+        while (table.size() < 500) {
+            String ngram = randomLetters(random, n);
+            String substitute = randomLetters(random, n);
+            if (!table.containsKey(ngram) && !used.contains(substitute)) {
+                table.put(ngram, substitute);
+                used.add(substitute);
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Builds a random key matrix with determinant 1 as the product of a unit lower
+     * triangular and a unit upper triangular matrix, so it is always invertible mod 26.
+     */
+    private static int[][] randomInvertibleMatrix(Random random, int n) {
+        int[][] lower = new int[n][n];
+        int[][] upper = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            lower[i][i] = 1;
+            upper[i][i] = 1;
+            for (int j = 0; j < i; j++) {
+                lower[i][j] = random.nextInt(26);
+                upper[j][i] = random.nextInt(26);
+            }
+        }
+        
+        int[][] matrix = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int sum = 0;
+                for (int k = 0; k < n; k++) {
+                    sum += lower[i][k] * upper[k][j];
+                }
+                matrix[i][j] = sum % 26;
+            }
+        }
+        return matrix;
+    }
+}
\ No newline at end of file
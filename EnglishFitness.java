@@ -0,0 +1,109 @@
+/**
+ * English Fitness
+ * Scores text by the log-probability of its letter pairs (bigrams) in English. Letters
+ * are taken case-insensitively and anything else is skipped, so "TH E" scores the pairs
+ * TH and HE. The fifty most common bigrams use their measured frequencies; every other
+ * pair is estimated from the frequencies of its two letters, discounted because common
+ * pairs have already taken their share.
+ * 
+ * The table is built once and is read-only, so one instance can be shared by any number
+ * of threads.
+ */
+public class EnglishFitness implements FitnessFunction {
+    
+    // Relative frequency of each letter A-Z in English text
+    static final double[] LETTER_FREQUENCIES = {
+        0.08167, 0.01492, 0.02782, 0.04253, 0.12702, 0.02228, 0.02015,
+        0.06094, 0.06966, 0.00153, 0.00772, 0.04025, 0.02406, 0.06749,
+        0.07507, 0.01929, 0.00095, 0.05987, 0.06327, 0.09056, 0.02758,
+        0.00978, 0.02360, 0.00150, 0.01974, 0.00074
+    };
+    
+    // The most common English bigrams and their share of all letter pairs, in percent
+    private static final String[] COMMON_BIGRAMS = {
+        "TH", "HE", "IN", "ER", "AN", "RE", "ON", "AT", "EN", "ND",
+        "TI", "ES", "OR", "TE", "OF", "ED", "IS", "IT", "AL", "AR",
+        "ST", "TO", "NT", "NG", "SE", "HA", "AS", "OU", "IO", "LE",
+        "VE", "CO", "ME", "DE", "HI", "RI", "RO", "IC", "NE", "EA",
+        "RA", "CE", "LI", "CH", "LL", "BE", "MA", "SI", "OM", "UR"
+    };
+    private static final double[] COMMON_BIGRAM_PERCENT = {
+        3.56, 3.07, 2.43, 2.05, 1.99, 1.85, 1.76, 1.49, 1.45, 1.35,
+        1.34, 1.34, 1.28, 1.20, 1.17, 1.17, 1.13, 1.12, 1.09, 1.07,
+        1.05, 1.04, 1.04, 0.95, 0.93, 0.93, 0.87, 0.87, 0.83, 0.83,
+        0.83, 0.79, 0.79, 0.76, 0.76, 0.73, 0.73, 0.70, 0.69, 0.69,
+        0.69, 0.65, 0.62, 0.60, 0.58, 0.58, 0.57, 0.55, 0.55, 0.54
+    };
+    
+    // Log-probability of every bigram, indexed by first * 26 + second
+    static final double[] LOG_BIGRAMS = buildTable();
+    
+    private static double[] buildTable() {
+        double commonShare = 0;
+        for (double percent : COMMON_BIGRAM_PERCENT) {
+            commonShare += percent / 100;
+        }
+        
+        // Share the remaining probability among the other pairs in proportion to
+        // the product of their letter frequencies
+        double[] probabilities = new double[26 * 26];
+        boolean[] common = new boolean[26 * 26];
+        for (String bigram : COMMON_BIGRAMS) {
+            common[(bigram.charAt(0) - 'A') * 26 + (bigram.charAt(1) - 'A')] = true;
+        }
+        double otherWeight = 0;
+        for (int i = 0; i < 26 * 26; i++) {
+            if (!common[i]) {
+                otherWeight += LETTER_FREQUENCIES[i / 26] * LETTER_FREQUENCIES[i % 26];
+            }
+        }
+        for (int i = 0; i < 26 * 26; i++) {
+            if (!common[i]) {
+                probabilities[i] = (1 - commonShare) * LETTER_FREQUENCIES[i / 26] * LETTER_FREQUENCIES[i % 26] / otherWeight;
+            }
+        }
+        for (int i = 0; i < COMMON_BIGRAMS.length; i++) {
+            String bigram = COMMON_BIGRAMS[i];
+            probabilities[(bigram.charAt(0) - 'A') * 26 + (bigram.charAt(1) - 'A')] = COMMON_BIGRAM_PERCENT[i] / 100;
+        }
+        
+        double[] table = new double[26 * 26];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = Math.log(probabilities[i]);
+        }
+        return table;
+    }
+    
+    @Override
+    public double score(char[] text, int off, int len) {
+        double score = 0;
+        int previous = -1;
+        
+        for (int i = off; i < off + len; i++) {
+            int letter = letterValue(text[i]);
+            if (letter < 0) {
+                continue;
+            }
+            if (previous >= 0) {
+                score += LOG_BIGRAMS[previous * 26 + letter];
+            }
+            previous = letter;
+        }
+        
+        return score;
+    }
+    
+    /**
+     * Returns the value (0-25) of an ASCII letter of either case, or -1. Shared by the
+     * other fitness functions and solvers.
+     */
+    static int letterValue(char character) {
+        if (character >= 'A' && character <= 'Z') {
+            return character - 'A';
+        }
+        if (character >= 'a' && character <= 'z') {
+            return character - 'a';
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+/**
+ * Fitness Function
+ * Scores how much a candidate plaintext looks like real language. Higher scores are
+ * better. Scores are only comparable between texts of the same length, which is what
+ * a key search produces.
+ */
+public interface FitnessFunction {
+    
+    /**
+     * Scores a range of characters.
+     * 
+     * @param text The buffer holding the candidate plaintext
+     * @param off The index of the first character
+     * @param len The number of characters
+     * @return The score (higher is more language-like)
+     */
+    double score(char[] text, int off, int len);
+    
+    /**
+     * Scores a whole string.
+     * 
+     * @param text The candidate plaintext
+     * @return The score (higher is more language-like)
+     */
+    default double score(String text) {
+        return score(text.toCharArray(), 0, text.length());
+    }
+}
\ No newline at end of file
@@ -13,36 +13,34 @@ public class GronsfeldCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, String keyDigits, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
-        
+        return compile(keyDigits).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a digit key into a reusable key.
+     * 
+     * @param keyDigits The key as a string of digits
+     * @return The compiled key
+     */
+    public static CompiledKey compile(String keyDigits) {
         if (keyDigits.isEmpty() || !keyDigits.matches("[0-9]+")) {
             throw new IllegalArgumentException("Key must be a non-empty string of digits");
         }
         
-        int keyIndex = 0;
-        
-        for (char character : text.toCharArray()) {
-            if (Character.isLetter(character)) {
-                char base = Character.isUpperCase(character) ? 'A' : 'a';
-                int shift = Character.getNumericValue(keyDigits.charAt(keyIndex % keyDigits.length()));
-                
-                int textValue = character - base;
-                int resultValue;
-                
-                if (encrypt) {
-                    resultValue = (textValue + shift) % 26;
-                } else {
-                    resultValue = (textValue - shift + 26) % 26;
-                }
-                
-                result.append((char) (resultValue + base));
-                keyIndex++;
-            } else {
-                result.append(character);
-            }
+        int[] shifts = new int[keyDigits.length()];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = keyDigits.charAt(i) - '0';
+        }
+        return new CompiledKey(shifts);
+    }
+    
+    /**
+     * A compiled Gronsfeld key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey extends PolyalphabeticKey {
+        private CompiledKey(int[] shifts) {
+            super(shifts, Tableau.VIGENERE);
         }
-        
-        return result.toString();
     }
     
     public static void main(String[] args) {
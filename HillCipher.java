@@ -2,6 +2,9 @@
  * Hill Cipher Implementation
  * This cipher uses matrix multiplication for encryption and decryption.
  */
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
 public class HillCipher {
     
     /**
@@ -13,182 +16,200 @@ public class HillCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, int[][] keyMatrix, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
-        String cleanText = text.toUpperCase().replaceAll("[^A-Z]", "");
-        
+        return compile(keyMatrix).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a key matrix into a reusable key. The matrix is copied, so later
+     * changes to it do not affect the compiled key.
+     * 
+     * @param keyMatrix The key matrix (must be square)
+     * @return The compiled key
+     */
+    public static CompiledKey compile(int[][] keyMatrix) {
         // Get the size of the matrix
         int n = keyMatrix.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("Key matrix cannot be empty");
+        }
         
         // Check if the matrix is square
-        for (int[] row : keyMatrix) {
-            if (row.length != n) {
+        int[][] matrix = new int[n][];
+        for (int i = 0; i < n; i++) {
+            if (keyMatrix[i].length != n) {
                 throw new IllegalArgumentException("Key matrix must be square");
             }
+            matrix[i] = keyMatrix[i].clone();
         }
         
-        // If decrypting, find the inverse matrix
-        int[][] workingMatrix = keyMatrix;
-        if (!encrypt) {
-            workingMatrix = inverseMatrix(keyMatrix);
-        }
-        
-        // Pad the text if needed
-        if (cleanText.length() % n != 0) {
-            int paddingLength = n - (cleanText.length() % n);
-            StringBuilder paddedText = new StringBuilder(cleanText);
-            for (int i = 0; i < paddingLength; i++) {
-                paddedText.append('X');
-            }
-            cleanText = paddedText.toString();
-        }
-        
-        // Process the text in blocks of size n
-        for (int i = 0; i < cleanText.length(); i += n) {
-            int[] vector = new int[n];
-            
-            // Convert the block to a vector
-            for (int j = 0; j < n; j++) {
-                vector[j] = cleanText.charAt(i + j) - 'A';
-            }
-            
-            // Multiply the vector by the key matrix
-            int[] resultVector = new int[n];
-            for (int row = 0; row < n; row++) {
-                for (int col = 0; col < n; col++) {
-                    resultVector[row] = (resultVector[row] + workingMatrix[row][col] * vector[col]) % 26;
-                }
-                resultVector[row] = (resultVector[row] + 26) % 26;  // Ensure positive value
-            }
-            
-            // Convert the result vector back to text
-            for (int j = 0; j < n; j++) {
-                result.append((char) (resultVector[j] + 'A'));
-            }
-        }
-        
-        return result.toString();
+        return new CompiledKey(matrix);
     }
     
     /**
-     * Calculates the determinant of a matrix.
+     * A compiled Hill key. Immutable and safe to share between threads. The inverse
+     * matrix is derived on first decryption, so a key that is only used for
+     * encryption never pays for (or fails on) the inversion.
+     * 
+     * Text is processed as one contiguous run of blocks: the letters are packed into a
+     * single buffer, every block is multiplied by the key with the products summed in
+     * an int and reduced mod 26 once per output letter, and the results are written
+     * straight into a preallocated output buffer. Large inputs are split into block
+     * ranges that are multiplied in parallel.
      */
-    private static int determinant(int[][] matrix) {
-        int n = matrix.length;
+    public static final class CompiledKey implements Cipher {
+        // Below this many multiply-adds the work is done on the calling thread
+        private static final long PARALLEL_THRESHOLD = 1L << 22;
+        
+        private final int n;
+        // Key matrix, row-major, entries reduced to 0-25
+        private final int[] matrix;
+        private volatile int[] inverse;
+        
+        private CompiledKey(int[][] keyMatrix) {
+            this.n = keyMatrix.length;
+            this.matrix = flatten(keyMatrix);
+        }
         
-        if (n == 1) {
-            return matrix[0][0];
+        /**
+         * Returns the block size (the matrix dimension).
+         * 
+         * @return The block size
+         */
+        public int blockSize() {
+            return n;
         }
         
-        if (n == 2) {
-            return (matrix[0][0] * matrix[1][1] - matrix[0][1] * matrix[1][0]) % 26;
+        @Override
+        public String encrypt(String text) {
+            return multiply(text, matrix);
         }
         
-        int det = 0;
-        for (int i = 0; i < n; i++) {
-            int[][] subMatrix = new int[n-1][n-1];
-            for (int j = 1; j < n; j++) {
-                for (int k = 0; k < n; k++) {
-                    if (k < i) {
-                        subMatrix[j-1][k] = matrix[j][k];
-                    } else if (k > i) {
-                        subMatrix[j-1][k-1] = matrix[j][k];
-                    }
+        @Override
+        public String decrypt(String text) {
+            return multiply(text, inverse());
+        }
+        
+        /**
+         * Encrypts or decrypts whole blocks of upper-case ASCII letters from one byte
+         * buffer into another. Input and output may be the same range of one array.
+         * 
+         * @param src The input letters ('A'-'Z')
+         * @param srcOff The index of the first input letter
+         * @param dst The buffer to write the output letters to
+         * @param dstOff The index of the first output letter
+         * @param blocks The number of blocks to process
+         * @param encrypt True for encryption, false for decryption
+         */
+        public void transformBlocks(byte[] src, int srcOff, byte[] dst, int dstOff, int blocks, boolean encrypt) {
+            for (int i = srcOff; i < srcOff + blocks * n; i++) {
+                if (src[i] < 'A' || src[i] > 'Z') {
+                    throw new IllegalArgumentException("Input must contain only the letters A-Z");
                 }
             }
-            det = (det + (int)Math.pow(-1, i) * matrix[0][i] * determinant(subMatrix)) % 26;
+            multiplyBlocks(src, srcOff, dst, dstOff, 'A', encrypt ? matrix : inverse(), blocks);
         }
         
-        return (det + 26) % 26;  // Ensure positive value
-    }
-    
-    /**
-     * Calculates the adjugate matrix.
-     */
-    private static int[][] adjugate(int[][] matrix) {
-        int n = matrix.length;
-        int[][] adj = new int[n][n];
-        
-        if (n == 1) {
-            adj[0][0] = 1;
-            return adj;
+        private int[] inverse() {
+            int[] workingMatrix = inverse;
+            if (workingMatrix == null) {
+                workingMatrix = flatten(ModularMatrix.inverse(unflatten(matrix), 26));
+                inverse = workingMatrix;
+            }
+            return workingMatrix;
         }
         
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                int[][] subMatrix = new int[n-1][n-1];
-                int row = 0;
-                for (int k = 0; k < n; k++) {
-                    if (k != i) {
-                        int col = 0;
-                        for (int l = 0; l < n; l++) {
-                            if (l != j) {
-                                subMatrix[row][col] = matrix[k][l];
-                                col++;
-                            }
-                        }
-                        row++;
-                    }
-                }
-                adj[j][i] = ((int)Math.pow(-1, i+j) * determinant(subMatrix) + 26) % 26;
+        private String multiply(String text, int[] workingMatrix) {
+            // Pack the letters as values 0-25, padded with 'X' to whole blocks
+            char[] letters = Letters.upperLetters(text);
+            int blocks = (letters.length + n - 1) / n;
+            byte[] values = new byte[blocks * n];
+            Arrays.fill(values, letters.length, values.length, (byte) ('X' - 'A'));
+            for (int i = 0; i < letters.length; i++) {
+                values[i] = (byte) (letters[i] - 'A');
             }
+            
+            multiplyBlocks(values, 0, values, 0, 0, workingMatrix, blocks);
+            
+            char[] result = new char[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = (char) (values[i] + 'A');
+            }
+            return new String(result);
         }
         
-        return adj;
-    }
-    
-    /**
-     * Calculates the multiplicative inverse of a number modulo 26.
-     */
-    private static int modInverse(int a) {
-        a = a % 26;
-        for (int x = 1; x < 26; x++) {
-            if ((a * x) % 26 == 1) {
-                return x;
+        /**
+         * Multiplies every block by the matrix. Letters are stored as letterBase plus
+         * their value (0 for raw values, 'A' for ASCII).
+         */
+        private void multiplyBlocks(byte[] src, int srcOff, byte[] dst, int dstOff, int letterBase,
+                                    int[] workingMatrix, int blocks) {
+            long work = (long) blocks * n * n;
+            int tasks = work < PARALLEL_THRESHOLD ? 1
+                    : (int) Math.min(blocks, Runtime.getRuntime().availableProcessors() * 4L);
+            
+            if (tasks == 1) {
+                multiplyRange(src, srcOff, dst, dstOff, letterBase, workingMatrix, 0, blocks);
+                return;
             }
+            
+            int blocksPerTask = (blocks + tasks - 1) / tasks;
+            IntStream.range(0, tasks).parallel().forEach(task -> {
+                int from = task * blocksPerTask;
+                int to = Math.min(blocks, from + blocksPerTask);
+                if (from < to) {
+                    multiplyRange(src, srcOff, dst, dstOff, letterBase, workingMatrix, from, to);
+                }
+            });
         }
-        throw new IllegalArgumentException("Multiplicative inverse does not exist");
-    }
-    
-    /**
-     * Calculates the inverse of a matrix modulo 26.
-     */
-    private static int[][] inverseMatrix(int[][] matrix) {
-        int n = matrix.length;
-        int det = determinant(matrix);
         
-        // Check if the determinant is invertible
-        if (det == 0 || gcd(det, 26) != 1) {
-            throw new IllegalArgumentException("Matrix is not invertible modulo 26");
+        private void multiplyRange(byte[] src, int srcOff, byte[] dst, int dstOff, int letterBase,
+                                   int[] workingMatrix, int fromBlock, int toBlock) {
+            int[] vector = new int[n];
+            
+            for (int block = fromBlock; block < toBlock; block++) {
+                int in = srcOff + block * n;
+                for (int j = 0; j < n; j++) {
+                    vector[j] = src[in + j] - letterBase;
+                }
+                
+                // Sum the whole row before reducing: n * 25 * 25 fits easily in an int
+                int out = dstOff + block * n;
+                for (int row = 0; row < n; row++) {
+                    int rowStart = row * n;
+                    int sum = 0;
+                    for (int col = 0; col < n; col++) {
+                        sum += workingMatrix[rowStart + col] * vector[col];
+                    }
+                    dst[out + row] = (byte) (sum % 26 + letterBase);
+                }
+            }
         }
         
-        int detInverse = modInverse(det);
-        int[][] adj = adjugate(matrix);
-        int[][] inverse = new int[n][n];
-        
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                inverse[i][j] = (adj[i][j] * detInverse) % 26;
+        private static int[] flatten(int[][] matrix) {
+            int n = matrix.length;
+            int[] flat = new int[n * n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    flat[i * n + j] = Math.floorMod(matrix[i][j], 26);
+                }
             }
+            return flat;
         }
         
-        return inverse;
-    }
-    
-    /**
-     * Calculates the greatest common divisor of two numbers.
-     */
-    private static int gcd(int a, int b) {
-        if (b == 0) {
-            return a;
+        private int[][] unflatten(int[] flat) {
+            int[][] matrix = new int[n][n];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(flat, i * n, matrix[i], 0, n);
+            }
+            return matrix;
         }
-        return gcd(b, a % b);
     }
     
     public static void main(String[] args) {
         String plaintext = "HELLO";
         int[][] keyMatrix = {
-            {6, 24},
-            {13, 16}
+            {3, 3},
+            {2, 5}
         };
         
         String encrypted = process(plaintext, keyMatrix, true);
@@ -0,0 +1,301 @@
+/**
+ * Hill Cipher Key Solver
+ * Recovers a Hill cipher key from known plaintext and the matching ciphertext.
+ * Each ciphertext block is the key times the plaintext block (c = K * p), so n plaintext
+ * blocks placed side by side as the columns of P, with the matching ciphertext blocks
+ * as the columns of C, give C = K * P and therefore K = C * P^-1 whenever P is
+ * invertible mod 26. The recovered key is then checked against every other block.
+ */
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+public class HillKeySolver {
+    
+    private static final int MODULUS = 26;
+    
+    // Prime factors of the modulus; a matrix is invertible mod 26 exactly when it is
+    // invertible mod each of them
+    private static final int[] PRIMES = {2, 13};
+    
+    // Start blocks tried by the search for an invertible set of blocks, per dimension
+    private static final int SEARCH_STARTS_PER_DIMENSION = 4;
+    
+    /**
+     * Recovers the key matrix from aligned plaintext and ciphertext.
+     * 
+     * @param plaintext The known plaintext (non-letters are ignored, as in HillCipher)
+     * @param ciphertext The ciphertext of that plaintext
+     * @param n The size of the key matrix
+     * @return The key matrix
+     * @throws IllegalArgumentException If the texts are too short, not aligned, do not
+     *         determine the key, or are not consistent with any single key
+     */
+    public static int[][] solve(String plaintext, String ciphertext, int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Matrix size must be at least 1");
+        }
+        
+        int[] cipher = letterValues(ciphertext);
+        int[] plain = padLikeCipher(letterValues(plaintext), cipher.length, n);
+        if (plain.length != cipher.length) {
+            throw new IllegalArgumentException("Plaintext and ciphertext must contain the same number of letters");
+        }
+        
+        int blocks = plain.length / n;
+        if (blocks < n) {
+            throw new IllegalArgumentException("At least " + n + " blocks (" + n * n + " letters) are needed");
+        }
+        
+        int[][] key = solveFromBlocks(plain, cipher, n, firstBlocks(n));
+        if (key == null) {
+            // The first n blocks are singular mod 26. Check in one pass that the blocks
+            // span every dimension mod each prime, then look for another invertible choice
+            int[][] independent = new int[PRIMES.length][];
+            for (int i = 0; i < PRIMES.length; i++) {
+                independent[i] = independentBlocks(plain, n, blocks, PRIMES[i]);
+            }
+            key = searchInvertibleBlocks(plain, cipher, n, blocks)
+                    .orElseGet(() -> solveByPrime(plain, cipher, n, independent));
+        }
+        
+        verify(key, plain, cipher, n, blocks);
+        return key;
+    }
+    
+    /**
+     * Pads the plaintext with 'X' when the ciphertext includes HillCipher's padding of
+     * the final block.
+     */
+    private static int[] padLikeCipher(int[] plain, int cipherLength, int n) {
+        if (plain.length % n == 0 || cipherLength != plain.length + n - plain.length % n) {
+            return plain;
+        }
+        int[] padded = Arrays.copyOf(plain, cipherLength);
+        Arrays.fill(padded, plain.length, cipherLength, 'X' - 'A');
+        return padded;
+    }
+    
+    private static int[] firstBlocks(int n) {
+        int[] chosen = new int[n];
+        for (int i = 0; i < n; i++) {
+            chosen[i] = i;
+        }
+        return chosen;
+    }
+    
+    /**
+     * Solves K = C * P^-1 mod 26 for the chosen blocks, or returns null if P is singular.
+     */
+    private static int[][] solveFromBlocks(int[] plain, int[] cipher, int n, int[] chosen) {
+        int[][] p = columns(plain, n, chosen);
+        int[][] c = columns(cipher, n, chosen);
+        try {
+            return ModularMatrix.multiply(c, ModularMatrix.inverse(p, MODULUS), MODULUS);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Searches in parallel for n blocks whose plaintext is invertible mod 26. A few start
+     * blocks spread over the text each seed a greedy scan that keeps each following block
+     * that is independent of those already kept, both mod 2 and mod 13.
+     */
+    private static Optional<int[][]> searchInvertibleBlocks(int[] plain, int[] cipher, int n, int blocks) {
+        int starts = (int) Math.min(blocks, (long) SEARCH_STARTS_PER_DIMENSION * n);
+        return IntStream.range(0, starts).parallel()
+                .mapToObj(s -> {
+                    int start = (int) ((long) s * blocks / starts);
+                    Basis[] bases = {new Basis(n, PRIMES[0]), new Basis(n, PRIMES[1])};
+                    int[] chosen = new int[n];
+                    int count = 0;
+                    
+                    for (int offset = 0; offset < blocks && count < n; offset++) {
+                        int block = (start + offset) % blocks;
+                        if (bases[0].isIndependent(plain, block * n) && bases[1].isIndependent(plain, block * n)) {
+                            bases[0].add(plain, block * n);
+                            bases[1].add(plain, block * n);
+                            chosen[count++] = block;
+                        }
+                    }
+                    
+                    return count == n ? solveFromBlocks(plain, cipher, n, chosen) : null;
+                })
+                .filter(key -> key != null)
+                .findFirst();
+    }
+    
+    /**
+     * Finds n blocks that are independent modulo the prime, in one pass over the blocks.
+     * 
+     * @throws IllegalArgumentException If the blocks span fewer than n dimensions, so the
+     *         key is not determined
+     */
+    private static int[] independentBlocks(int[] plain, int n, int blocks, int prime) {
+        Basis basis = new Basis(n, prime);
+        int[] chosen = new int[n];
+        int count = 0;
+        for (int block = 0; block < blocks && count < n; block++) {
+            if (basis.isIndependent(plain, block * n)) {
+                basis.add(plain, block * n);
+                chosen[count++] = block;
+            }
+        }
+        if (count < n) {
+            throw new IllegalArgumentException("The plaintext blocks only span " + count + " of " + n
+                    + " dimensions modulo " + prime + ", so the key is not determined");
+        }
+        return chosen;
+    }
+    
+    /**
+     * Solves the key separately mod 2 and mod 13, each from its own set of independent
+     * blocks, and combines the two. This succeeds even when no single set of n blocks is
+     * invertible mod 26.
+     */
+    private static int[][] solveByPrime(int[] plain, int[] cipher, int n, int[][] independent) {
+        int[][] key = null;
+        int combinedModulus = 1;
+        
+        for (int i = 0; i < PRIMES.length; i++) {
+            int prime = PRIMES[i];
+            int[][] p = columns(plain, n, independent[i]);
+            int[][] c = columns(cipher, n, independent[i]);
+            int[][] partial = ModularMatrix.multiply(c, ModularMatrix.inverse(p, prime), prime);
+            key = key == null ? partial : ModularMatrix.chineseRemainder(key, combinedModulus, partial, prime);
+            combinedModulus *= prime;
+        }
+        
+        return key;
+    }
+    
+    /**
+     * Checks that the key maps every plaintext block to its ciphertext block.
+     */
+    private static void verify(int[][] key, int[] plain, int[] cipher, int n, int blocks) {
+        int mismatch = IntStream.range(0, blocks).parallel()
+                .filter(block -> {
+                    int base = block * n;
+                    for (int row = 0; row < n; row++) {
+                        int sum = 0;
+                        for (int col = 0; col < n; col++) {
+                            sum += key[row][col] * plain[base + col];
+                        }
+                        if (sum % MODULUS != cipher[base + row]) {
+                            return true;
+                        }
+                    }
+                    return false;
+                })
+                .findFirst().orElse(-1);
+        
+        if (mismatch >= 0) {
+            throw new IllegalArgumentException("No single key fits the texts: block " + mismatch
+                    + " does not match (check the alignment and the matrix size)");
+        }
+    }
+    
+    /**
+     * Builds the matrix whose columns are the chosen blocks.
+     */
+    private static int[][] columns(int[] values, int n, int[] chosen) {
+        int[][] matrix = new int[n][n];
+        for (int col = 0; col < n; col++) {
+            int base = chosen[col] * n;
+            for (int row = 0; row < n; row++) {
+                matrix[row][col] = values[base + row];
+            }
+        }
+        return matrix;
+    }
+    
+    private static int[] letterValues(String text) {
+        char[] letters = Letters.upperLetters(text);
+        int[] values = new int[letters.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = letters[i] - 'A';
+        }
+        return values;
+    }
+    
+    /**
+     * An incrementally built row-echelon basis over the integers mod a prime, used to
+     * test whether a block is linearly independent of the blocks chosen so far.
+     */
+    private static final class Basis {
+        private final int n;
+        private final int prime;
+        private final int[][] rows;
+        private final int[] pivots;
+        private final int[] scratch;
+        private int size;
+        
+        Basis(int n, int prime) {
+            this.n = n;
+            this.prime = prime;
+            this.rows = new int[n][];
+            this.pivots = new int[n];
+            this.scratch = new int[n];
+        }
+        
+        /**
+         * Reduces the block against the basis into the scratch vector and reports
+         * whether anything is left.
+         */
+        boolean isIndependent(int[] values, int offset) {
+            for (int j = 0; j < n; j++) {
+                scratch[j] = values[offset + j] % prime;
+            }
+            for (int r = 0; r < size; r++) {
+                int factor = scratch[pivots[r]];
+                if (factor != 0) {
+                    for (int j = 0; j < n; j++) {
+                        scratch[j] = Math.floorMod(scratch[j] - factor * rows[r][j], prime);
+                    }
+                }
+            }
+            for (int j = 0; j < n; j++) {
+                if (scratch[j] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * Adds a block, which must be independent of the basis.
+         */
+        void add(int[] values, int offset) {
+            isIndependent(values, offset);
+            int pivot = 0;
+            while (scratch[pivot] == 0) {
+                pivot++;
+            }
+            
+            // Normalise so the pivot entry is 1
+            int scale = ModularMatrix.modInverse(scratch[pivot], prime);
+            int[] row = new int[n];
+            for (int j = 0; j < n; j++) {
+                row[j] = scratch[j] * scale % prime;
+            }
+            rows[size] = row;
+            pivots[size] = pivot;
+            size++;
+        }
+    }
+    
+    public static void main(String[] args) {
+        int[][] keyMatrix = {
+            {3, 3},
+            {2, 5}
+        };
+        String plaintext = "SHORTEXAMPLEOFKNOWNPLAINTEXT";
+        String ciphertext = HillCipher.process(plaintext, keyMatrix, true);
+        
+        int[][] recovered = solve(plaintext, ciphertext, 2);
+        
+        System.out.println("Ciphertext: " + ciphertext);
+        System.out.println("Recovered key: " + Arrays.deepToString(recovered));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+/**
+ * Letters
+ * Helpers shared by the ciphers that read only the letters of their input.
+ */
+import java.util.Arrays;
+
+public final class Letters {
+    
+    private Letters() {
+    }
+    
+    /**
+     * Returns the upper-case ASCII letters of the text, dropping everything else, as
+     * text.toUpperCase().replaceAll("[^A-Z]", "") would.
+     */
+    static char[] upperLetters(String text) {
+        // Full Unicode upper-casing can turn one character into several letters
+        // (e.g. the German sharp s into "SS"), so it is only needed for non-ASCII input
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 128) {
+                text = text.toUpperCase();
+                break;
+            }
+        }
+        
+        char[] letters = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character >= 'a' && character <= 'z') {
+                letters[length++] = (char) (character - 'a' + 'A');
+            } else if (character >= 'A' && character <= 'Z') {
+                letters[length++] = character;
+            }
+        }
+        return length == letters.length ? letters : Arrays.copyOf(letters, length);
+    }
+}
\ No newline at end of file
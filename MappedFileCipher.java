@@ -0,0 +1,96 @@
+/**
+ * Mapped File Cipher
+ * Encrypts or decrypts ASCII text files with a substitution cipher by memory-mapping
+ * them region by region. The data is never decoded into Java chars and never held on
+ * the heap as a whole, so files of any size are processed with a small fixed buffer.
+ */
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedFileCipher {
+    
+    // Size of each mapped region of the file
+    private static final long REGION_SIZE = 64L * 1024 * 1024;
+    
+    // Size of the scratch buffer the letters are transformed in
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    /**
+     * Encrypts or decrypts a file into another file. If both paths name the same file,
+     * it is transformed in place rather than truncated before it is read.
+     * 
+     * @param source The file to read
+     * @param target The file to write (created or truncated)
+     * @param key The compiled key
+     * @param encrypt True for encryption, false for decryption
+     * @throws IOException If either file cannot be read or written
+     */
+    public static void process(Path source, Path target, SubstitutionCipher key, boolean encrypt) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            process(source, key, encrypt);
+            return;
+        }
+        
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int keyIndex = 0;
+            
+            for (long position = 0; position < size; position += REGION_SIZE) {
+                long regionSize = Math.min(REGION_SIZE, size - position);
+                MappedByteBuffer inRegion = in.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+                MappedByteBuffer outRegion = out.map(FileChannel.MapMode.READ_WRITE, position, regionSize);
+                keyIndex = transformRegion(inRegion, outRegion, chunk, key, keyIndex, encrypt);
+            }
+        }
+    }
+    
+    /**
+     * Encrypts or decrypts a file in place.
+     * 
+     * @param file The file to transform
+     * @param key The compiled key
+     * @param encrypt True for encryption, false for decryption
+     * @throws IOException If the file cannot be read or written
+     */
+    public static void process(Path file, SubstitutionCipher key, boolean encrypt) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int keyIndex = 0;
+            
+            for (long position = 0; position < size; position += REGION_SIZE) {
+                long regionSize = Math.min(REGION_SIZE, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, regionSize);
+                keyIndex = transformRegion(region.duplicate(), region, chunk, key, keyIndex, encrypt);
+            }
+        }
+    }
+    
+    private static int transformRegion(MappedByteBuffer inRegion, MappedByteBuffer outRegion, byte[] chunk,
+                                       SubstitutionCipher key, int keyIndex, boolean encrypt) {
+        while (inRegion.hasRemaining()) {
+            int count = Math.min(chunk.length, inRegion.remaining());
+            inRegion.get(chunk, 0, count);
+            keyIndex = key.transform(chunk, 0, count, keyIndex, encrypt);
+            outRegion.put(chunk, 0, count);
+        }
+        return keyIndex;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("Usage: MappedFileCipher <encrypt|decrypt> <vigenere-keyword> <source> <target>");
+            return;
+        }
+        
+        boolean encrypt = args[0].equalsIgnoreCase("encrypt");
+        process(Path.of(args[2]), Path.of(args[3]), VigenereCipher.compile(args[1]), encrypt);
+    }
+}
\ No newline at end of file
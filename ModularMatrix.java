@@ -0,0 +1,225 @@
+/**
+ * Modular Matrix Operations
+ * Linear algebra over the integers mod m, as used by the Hill cipher.
+ * Inverses are found by Gauss-Jordan elimination in O(n^3). For a composite modulus
+ * the matrix is inverted separately modulo each prime power factor (26 = 2 * 13) and
+ * the results are combined with the Chinese remainder theorem, since elimination only
+ * works when every non-zero pivot candidate that is coprime to the modulus is a unit.
+ */
+import java.util.Arrays;
+
+public final class ModularMatrix {
+    
+    private ModularMatrix() {
+    }
+    
+    /**
+     * Calculates the inverse of a square matrix modulo m.
+     * 
+     * @param matrix The matrix to invert (not modified)
+     * @param modulus The modulus (at least 2)
+     * @return The inverse matrix, with entries in 0 to modulus - 1
+     * @throws IllegalArgumentException If the matrix is not invertible modulo m, with the reason
+     */
+    public static int[][] inverse(int[][] matrix, int modulus) {
+        if (modulus < 2) {
+            throw new IllegalArgumentException("Modulus must be at least 2");
+        }
+        int n = matrix.length;
+        for (int[] row : matrix) {
+            if (row.length != n) {
+                throw new IllegalArgumentException("Matrix must be square");
+            }
+        }
+        
+        int[][] result = null;
+        int combinedModulus = 1;
+        
+        for (int[] factor : primePowerFactors(modulus)) {
+            int prime = factor[0];
+            int primePower = factor[1];
+            int[][] partial = inversePrimePower(matrix, prime, primePower, modulus);
+            
+            result = result == null ? partial : chineseRemainder(result, combinedModulus, partial, primePower);
+            combinedModulus *= primePower;
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Multiplies two matrices modulo m.
+     * 
+     * @param a The left matrix (rows x inner)
+     * @param b The right matrix (inner x columns)
+     * @param modulus The modulus
+     * @return The product, with entries in 0 to modulus - 1
+     */
+    public static int[][] multiply(int[][] a, int[][] b, int modulus) {
+        int rows = a.length;
+        int inner = b.length;
+        int columns = b[0].length;
+        int[][] product = new int[rows][columns];
+        
+        for (int i = 0; i < rows; i++) {
+            for (int k = 0; k < inner; k++) {
+                long left = Math.floorMod(a[i][k], modulus);
+                if (left == 0) {
+                    continue;
+                }
+                for (int j = 0; j < columns; j++) {
+                    product[i][j] = (int) ((product[i][j] + left * Math.floorMod(b[k][j], modulus)) % modulus);
+                }
+            }
+        }
+        
+        return product;
+    }
+    
+    /**
+     * Combines a matrix known modulo m1 and a matrix known modulo m2 into the matrix
+     * modulo m1 * m2 with the Chinese remainder theorem. The moduli must be coprime.
+     * 
+     * @param r The matrix modulo m1, with entries in 0 to m1 - 1
+     * @param m1 The first modulus
+     * @param s The matrix modulo m2
+     * @param m2 The second modulus
+     * @return The combined matrix modulo m1 * m2
+     */
+    public static int[][] chineseRemainder(int[][] r, int m1, int[][] s, int m2) {
+        // x = r (mod m1), x = s (mod m2) gives x = r + m1 * ((s - r) * m1^-1 mod m2)
+        int inverseOfM1 = modInverse(m1 % m2, m2);
+        int[][] combined = new int[r.length][];
+        
+        for (int i = 0; i < r.length; i++) {
+            combined[i] = new int[r[i].length];
+            for (int j = 0; j < r[i].length; j++) {
+                long difference = Math.floorMod((long) s[i][j] - r[i][j], m2);
+                long step = difference * inverseOfM1 % m2;
+                combined[i][j] = (int) (r[i][j] + (long) m1 * step);
+            }
+        }
+        
+        return combined;
+    }
+    
+    /**
+     * Inverts a matrix modulo p^k by Gauss-Jordan elimination. A value is a unit mod p^k
+     * exactly when it is not divisible by p, so each column needs a pivot that p does not
+     * divide; if there is none, the matrix is singular modulo p.
+     */
+    private static int[][] inversePrimePower(int[][] matrix, int prime, int modulus, int fullModulus) {
+        int n = matrix.length;
+        
+        // Augmented matrix [A | I], reduced mod p^k
+        long[][] work = new long[n][2 * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                work[i][j] = Math.floorMod(matrix[i][j], modulus);
+            }
+            work[i][n + i] = 1;
+        }
+        
+        for (int col = 0; col < n; col++) {
+            // Find a unit pivot in this column
+            int pivot = -1;
+            for (int row = col; row < n; row++) {
+                if (work[row][col] % prime != 0) {
+                    pivot = row;
+                    break;
+                }
+            }
+            if (pivot == -1) {
+                throw new IllegalArgumentException("Matrix is not invertible modulo " + fullModulus
+                        + ": it is singular modulo " + prime + " (no usable pivot in column " + col
+                        + ", so the determinant is divisible by " + prime + ")");
+            }
+            
+            long[] swap = work[col];
+            work[col] = work[pivot];
+            work[pivot] = swap;
+            
+            // Scale the pivot row so the pivot becomes 1
+            long[] pivotRow = work[col];
+            long scale = modInverse((int) pivotRow[col], modulus);
+            for (int j = col; j < 2 * n; j++) {
+                pivotRow[j] = pivotRow[j] * scale % modulus;
+            }
+            
+            // Clear the column in every other row
+            for (int row = 0; row < n; row++) {
+                long factor = work[row][col];
+                if (row == col || factor == 0) {
+                    continue;
+                }
+                long[] target = work[row];
+                for (int j = col; j < 2 * n; j++) {
+                    target[j] = Math.floorMod(target[j] - factor * pivotRow[j], modulus);
+                }
+            }
+        }
+        
+        int[][] inverse = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                inverse[i][j] = (int) work[i][n + j];
+            }
+        }
+        return inverse;
+    }
+    
+    /**
+     * Splits a modulus into its prime power factors.
+     * 
+     * @return Pairs of {prime, prime power}
+     */
+    private static int[][] primePowerFactors(int modulus) {
+        int[][] factors = new int[32][];
+        int count = 0;
+        int remaining = modulus;
+        
+        for (int prime = 2; (long) prime * prime <= remaining; prime++) {
+            if (remaining % prime == 0) {
+                int primePower = 1;
+                while (remaining % prime == 0) {
+                    remaining /= prime;
+                    primePower *= prime;
+                }
+                factors[count++] = new int[] {prime, primePower};
+            }
+        }
+        if (remaining > 1) {
+            factors[count++] = new int[] {remaining, remaining};
+        }
+        
+        return Arrays.copyOf(factors, count);
+    }
+    
+    /**
+     * Calculates the multiplicative inverse of a number modulo m with the extended
+     * Euclidean algorithm.
+     * 
+     * @throws IllegalArgumentException If the number is not coprime with m
+     */
+    public static int modInverse(int a, int modulus) {
+        long oldR = Math.floorMod(a, modulus);
+        long r = modulus;
+        long oldS = 1;
+        long s = 0;
+        
+        while (r != 0) {
+            long quotient = oldR / r;
+            long temp = r;
+            r = oldR - quotient * r;
+            oldR = temp;
+            temp = s;
+            s = oldS - quotient * s;
+            oldS = temp;
+        }
+        
+        if (oldR != 1) {
+            throw new IllegalArgumentException("Multiplicative inverse does not exist");
+        }
+        return Math.floorMod(oldS, modulus);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+/**
+ * Monoalphabetic Key
+ * Base class for the compiled keys of the monoalphabetic ciphers (Caesar, Atbash, Affine).
+ * The key is compiled into translation tables covering every ASCII code, so the hot loop
+ * is a single table lookup per character with no case tests and no modular arithmetic.
+ */
+public abstract class MonoalphabeticKey implements SubstitutionCipher {
+    private final char[] encryptChars = new char[128];
+    private final char[] decryptChars = new char[128];
+    private final byte[] encryptBytes = new byte[256];
+    private final byte[] decryptBytes = new byte[256];
+    
+    /**
+     * Builds the translation tables from a letter mapping.
+     * 
+     * @param mapping The ciphertext letter (0-25) for each plaintext letter (0-25); must be a permutation
+     */
+    protected MonoalphabeticKey(int[] mapping) {
+        // Everything that is not a letter maps to itself
+        for (int c = 0; c < 256; c++) {
+            if (c < 128) {
+                encryptChars[c] = (char) c;
+                decryptChars[c] = (char) c;
+            }
+            encryptBytes[c] = (byte) c;
+            decryptBytes[c] = (byte) c;
+        }
+        
+        for (int x = 0; x < 26; x++) {
+            int y = mapping[x];
+            encryptChars['A' + x] = (char) ('A' + y);
+            encryptChars['a' + x] = (char) ('a' + y);
+            decryptChars['A' + y] = (char) ('A' + x);
+            decryptChars['a' + y] = (char) ('a' + x);
+            encryptBytes['A' + x] = (byte) ('A' + y);
+            encryptBytes['a' + x] = (byte) ('a' + y);
+            decryptBytes['A' + y] = (byte) ('A' + x);
+            decryptBytes['a' + y] = (byte) ('a' + x);
+        }
+    }
+    
+    @Override
+    public int period() {
+        return 1;
+    }
+    
+    @Override
+    public int transform(char[] buf, int off, int len, int keyIndex, boolean encrypt) {
+        char[] table = encrypt ? encryptChars : decryptChars;
+        int end = off + len;
+        
+        for (int i = off; i < end; i++) {
+            char character = buf[i];
+            if (character < 128) {
+                buf[i] = table[character];
+            }
+        }
+        
+        return 0;
+    }
+    
+    @Override
+    public int transform(byte[] buf, int off, int len, int keyIndex, boolean encrypt) {
+        byte[] table = encrypt ? encryptBytes : decryptBytes;
+        int end = off + len;
+        
+        for (int i = off; i < end; i++) {
+            buf[i] = table[buf[i] & 0xFF];
+        }
+        
+        return 0;
+    }
+}
\ No newline at end of file
@@ -2,11 +2,7 @@
  * Myszkowski Transposition Cipher Implementation
  * This is a transposition cipher that uses a keyword to determine column order.
  */
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Arrays;
 
 public class MyszkowskiCipher {
     
@@ -19,142 +15,164 @@ public class MyszkowskiCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, String keyword, boolean encrypt) {
-        if (encrypt) {
-            return encrypt(text, keyword);
-        } else {
-            return decrypt(text, keyword);
+        return compile(keyword).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a keyword into a reusable key.
+     * 
+     * @param keyword The keyword that determines the transposition order
+     * @return The compiled key
+     */
+    public static CompiledKey compile(String keyword) {
+        if (keyword.isEmpty()) {
+            throw new IllegalArgumentException("Keyword cannot be empty");
         }
+        return new CompiledKey(getKeyNumbers(keyword));
     }
     
-    private static String encrypt(String text, String keyword) {
-        // Remove spaces
-        String cleanText = text.replaceAll("\\s", "");
-        
-        // Create the unique key by assigning numbers to the keyword letters
-        int[] keyNumbers = getKeyNumbers(keyword);
-        
-        // Calculate number of rows needed
-        int keyLength = keyword.length();
-        int textLength = cleanText.length();
-        int rows = (int) Math.ceil((double) textLength / keyLength);
-        
-        // Create the grid
-        char[][] grid = new char[rows][keyLength];
-        
-        // Fill the grid with the plaintext
-        int index = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < keyLength; j++) {
-                if (index < textLength) {
-                    grid[i][j] = cleanText.charAt(index++);
-                } else {
-                    grid[i][j] = 'X'; // Padding
+    /**
+     * A compiled Myszkowski key. Immutable and safe to share between threads.
+     * 
+     * The key plan is two flat arrays: the column numbers listed group by group in key
+     * order, and the offset of each group in that list. Every character's place in the
+     * ciphertext follows from its row and column, so no grid is built.
+     */
+    public static final class CompiledKey implements Cipher {
+        private final int keyLength;
+        // Column indices, group by group in key order, ascending within each group
+        private final int[] columnOrder;
+        // Group g is columnOrder[groupStart[g]] to columnOrder[groupStart[g + 1] - 1]
+        private final int[] groupStart;
+        
+        private CompiledKey(int[] keyNumbers) {
+            this.keyLength = keyNumbers.length;
+            
+            // Group columns with the same key number: rank the distinct numbers, count
+            // the columns of each, and place them with a counting sort (stable, so each
+            // group keeps its columns in ascending order)
+            int[] distinct = keyNumbers.clone();
+            Arrays.sort(distinct);
+            int groups = 0;
+            for (int i = 0; i < distinct.length; i++) {
+                if (i == 0 || distinct[i] != distinct[i - 1]) {
+                    distinct[groups++] = distinct[i];
                 }
             }
-        }
-        
-        // Read off the grid according to the key order
-        StringBuilder result = new StringBuilder();
-        
-        // Group columns with the same key number
-        Map<Integer, List<Integer>> keyGroups = new TreeMap<>();
-        for (int i = 0; i < keyNumbers.length; i++) {
-            if (!keyGroups.containsKey(keyNumbers[i])) {
-                keyGroups.put(keyNumbers[i], new ArrayList<>());
+            
+            int[] groupOf = new int[keyLength];
+            this.groupStart = new int[groups + 1];
+            for (int column = 0; column < keyLength; column++) {
+                groupOf[column] = Arrays.binarySearch(distinct, 0, groups, keyNumbers[column]);
+                groupStart[groupOf[column] + 1]++;
+            }
+            for (int g = 0; g < groups; g++) {
+                groupStart[g + 1] += groupStart[g];
+            }
+            
+            this.columnOrder = new int[keyLength];
+            int[] next = Arrays.copyOf(groupStart, groups);
+            for (int column = 0; column < keyLength; column++) {
+                columnOrder[next[groupOf[column]]++] = column;
             }
-            keyGroups.get(keyNumbers[i]).add(i);
         }
         
-        // Read columns in key order
-        for (Map.Entry<Integer, List<Integer>> entry : keyGroups.entrySet()) {
-            List<Integer> columnIndices = entry.getValue();
+        @Override
+        public String encrypt(String text) {
+            // Remove spaces
+            String cleanText = text.replaceAll("\\s", "");
+            
+            // The grid is padded with 'X' to whole rows
+            int textLength = cleanText.length();
+            int rows = (textLength + keyLength - 1) / keyLength;
+            char[] result = new char[rows * keyLength];
             
-            // Read grouped columns from top to bottom
-            for (int i = 0; i < rows; i++) {
-                for (int colIndex : columnIndices) {
-                    if (i < rows && colIndex < keyLength) {
-                        result.append(grid[i][colIndex]);
+            // Read columns in key order, grouped columns row by row
+            int index = 0;
+            for (int g = 0; g < groupStart.length - 1; g++) {
+                for (int row = 0; row < rows; row++) {
+                    int rowStart = row * keyLength;
+                    for (int i = groupStart[g]; i < groupStart[g + 1]; i++) {
+                        int position = rowStart + columnOrder[i];
+                        result[index++] = position < textLength ? cleanText.charAt(position) : 'X';
                     }
                 }
             }
+            
+            return new String(result);
         }
         
-        return result.toString();
-    }
-    
-    private static String decrypt(String text, String keyword) {
-        int[] keyNumbers = getKeyNumbers(keyword);
-        int keyLength = keyword.length();
-        int textLength = text.length();
-        int rows = (int) Math.ceil((double) textLength / keyLength);
-        
-        // Group columns with the same key number
-        Map<Integer, List<Integer>> keyGroups = new TreeMap<>();
-        for (int i = 0; i < keyNumbers.length; i++) {
-            if (!keyGroups.containsKey(keyNumbers[i])) {
-                keyGroups.put(keyNumbers[i], new ArrayList<>());
-            }
-            keyGroups.get(keyNumbers[i]).add(i);
+        @Override
+        public String decrypt(String text) {
+            char[] cipher = text.toCharArray();
+            char[] result = new char[cipher.length];
+            decrypt(cipher, cipher.length, result);
+            return new String(result);
         }
         
-        // Calculate the number of characters in each column group
-        Map<Integer, Integer> groupSizes = new HashMap<>();
-        for (Map.Entry<Integer, List<Integer>> entry : keyGroups.entrySet()) {
-            groupSizes.put(entry.getKey(), entry.getValue().size() * rows);
+        /**
+         * Decrypts a ciphertext into a buffer. If the length is not a whole number of
+         * rows, the final row is taken to be partial: its missing cells are absent from
+         * every group rather than padded.
+         * 
+         * @param cipher The ciphertext
+         * @param length The number of ciphertext characters
+         * @param result The buffer for the plaintext (at least length long)
+         */
+        void decrypt(char[] cipher, int length, char[] result) {
+            MyszkowskiCipher.decrypt(cipher, length, result, columnOrder, groupStart, groupStart.length - 1);
         }
         
-        // Adjust for any incomplete final row
-        int lastGroupKey = -1;
-        for (int key : keyGroups.keySet()) {
-            if (key > lastGroupKey) {
-                lastGroupKey = key;
-            }
+        /**
+         * Returns the number of columns.
+         */
+        int keyLength() {
+            return keyLength;
         }
         
-        int totalSize = 0;
-        for (int size : groupSizes.values()) {
-            totalSize += size;
+        /**
+         * Returns the column indices, group by group in key order.
+         */
+        int[] columnOrder() {
+            return columnOrder.clone();
         }
         
-        int overflow = totalSize - textLength;
-        if (overflow > 0) {
-            List<Integer> lastGroup = keyGroups.get(lastGroupKey);
-            groupSizes.put(lastGroupKey, groupSizes.get(lastGroupKey) - overflow);
+        /**
+         * Returns the offset of each group in columnOrder(), followed by keyLength.
+         */
+        int[] groupStart() {
+            return groupStart.clone();
         }
+    }
+    
+    /**
+     * Decrypts through a key plan, as CompiledKey.decrypt does. Exposed so that key
+     * searches can rebuild a plan in place for each trial key instead of compiling one.
+     * 
+     * @param cipher The ciphertext
+     * @param length The number of ciphertext characters
+     * @param result The buffer for the plaintext (at least length long)
+     * @param columnOrder Column indices, group by group in key order
+     * @param groupStart The offset of each group in columnOrder, then the key length
+     * @param groups The number of groups
+     */
+    static void decrypt(char[] cipher, int length, char[] result, int[] columnOrder, int[] groupStart, int groups) {
+        int keyLength = groupStart[groups];
+        int rows = (length + keyLength - 1) / keyLength;
         
-        // Create a grid to hold the decrypted text
-        char[][] grid = new char[rows][keyLength];
-        
-        // Fill the grid using the ciphertext
+        // Walk the positions in ciphertext order and put each character back
         int index = 0;
-        for (Map.Entry<Integer, List<Integer>> entry : keyGroups.entrySet()) {
-            int key = entry.getKey();
-            List<Integer> columnIndices = entry.getValue();
-            int groupSize = groupSizes.get(key);
-            String groupText = text.substring(index, index + groupSize);
-            index += groupSize;
-            
-            int groupIndex = 0;
-            for (int i = 0; i < rows; i++) {
-                for (int colIndex : columnIndices) {
-                    if (groupIndex < groupText.length()) {
-                        grid[i][colIndex] = groupText.charAt(groupIndex++);
+        for (int g = 0; g < groups; g++) {
+            for (int row = 0; row < rows; row++) {
+                int rowStart = row * keyLength;
+                for (int i = groupStart[g]; i < groupStart[g + 1]; i++) {
+                    int position = rowStart + columnOrder[i];
+                    if (position < length) {
+                        result[position] = cipher[index++];
                     }
                 }
             }
         }
-        
-        // Read the grid row by row to get the plaintext
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < keyLength; j++) {
-                if (grid[i][j] != '\0') {
-                    result.append(grid[i][j]);
-                }
-            }
-        }
-        
-        return result.toString();
     }
     
     /**
@@ -169,23 +187,18 @@ public class MyszkowskiCipher {
         String upperKeyword = keyword.toUpperCase();
         
         // Find unique characters and sort them
-        char[] sortedChars = upperKeyword.toCharArray();
-        java.util.Arrays.sort(sortedChars);
-        
-        // Remove duplicates
-        StringBuilder uniqueChars = new StringBuilder();
-        char lastChar = '\0';
-        for (char c : sortedChars) {
-            if (c != lastChar) {
-                uniqueChars.append(c);
-                lastChar = c;
+        char[] uniqueChars = upperKeyword.toCharArray();
+        Arrays.sort(uniqueChars);
+        int unique = 0;
+        for (int i = 0; i < uniqueChars.length; i++) {
+            if (i == 0 || uniqueChars[i] != uniqueChars[i - 1]) {
+                uniqueChars[unique++] = uniqueChars[i];
             }
         }
         
         // Assign numbers based on alphabetical order
         for (int i = 0; i < length; i++) {
-            char c = upperKeyword.charAt(i);
-            keyNumbers[i] = uniqueChars.toString().indexOf(c) + 1;
+            keyNumbers[i] = Arrays.binarySearch(uniqueChars, 0, unique, upperKeyword.charAt(i)) + 1;
         }
         
         return keyNumbers;
@@ -1,12 +1,28 @@
 /**
  * N-Gram Cipher Implementation
  * This cipher substitutes groups of n letters with other groups of n letters.
+ * The table is compiled into an index on n-grams packed as base-26 numbers: a dense
+ * array for n up to 4 when the table fills enough of it, and an open-addressing hash
+ * table otherwise for n up to 13 (the most that fits in a long). The inverse is
+ * compiled on the first decryption, so both directions are a few array reads per n-gram
+ * with no substrings.
  */
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class NGramCipher {
     
+    // Largest n whose n-grams can be indexed in a dense array (26^4 entries)
+    private static final int MAX_DENSE_N = 4;
+    
+    // A dense array is used only if at least one slot in this many is filled; sparser
+    // tables go in a PackedMap, which is far smaller (a 26^4 array takes 1.8 MB)
+    private static final int DENSE_MIN_FILL = 16;
+    
+    // Largest n whose packed n-grams fit in a long
+    private static final int MAX_PACKED_N = 13;
+    
     /**
      * Encrypts text using N-Gram substitution.
      * 
@@ -17,48 +33,237 @@ public class NGramCipher {
      * @return The encrypted text
      */
     public static String process(String text, Map<String, String> substitutionMap, int n, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
-        String cleanText = text.toUpperCase().replaceAll("[^A-Z]", "");
-        
-        if (encrypt) {
-            // For encryption
-            for (int i = 0; i <= cleanText.length() - n; i += n) {
-                String ngram = cleanText.substring(i, i + n);
-                if (substitutionMap.containsKey(ngram)) {
-                    result.append(substitutionMap.get(ngram));
-                } else {
-                    result.append(ngram);
-                }
+        return compile(substitutionMap, n).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a substitution map into a reusable key. The map is copied, so later
+     * changes to it do not affect the compiled key.
+     * 
+     * @param substitutionMap Map of N-grams to their substitutions; keys and values must
+     *        be n letters (either case)
+     * @param n The size of the N-grams
+     * @return The compiled key
+     */
+    public static CompiledKey compile(Map<String, String> substitutionMap, int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("N-gram size must be at least 1");
+        }
+        return new CompiledKey(substitutionMap, n);
+    }
+    
+    /**
+     * A compiled N-Gram substitution table. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey implements Cipher {
+        private final int n;
+        
+        // The substitutions, upper-cased, in the order of the map they were compiled from
+        private final String[] ngrams;
+        private final String[] substitutes;
+        
+        private final Table forward;
+        
+        // Built on the first decryption
+        private volatile Table inverse;
+        
+        private CompiledKey(Map<String, String> substitutionMap, int n) {
+            this.n = n;
+            this.ngrams = new String[substitutionMap.size()];
+            this.substitutes = new String[substitutionMap.size()];
+            int i = 0;
+            for (Map.Entry<String, String> entry : substitutionMap.entrySet()) {
+                checkNGram(entry.getKey(), n);
+                checkNGram(entry.getValue(), n);
+                ngrams[i] = entry.getKey().toUpperCase();
+                substitutes[i] = entry.getValue().toUpperCase();
+                i++;
             }
-            
-            // Handle remaining characters
-            if (cleanText.length() % n != 0) {
-                result.append(cleanText.substring(cleanText.length() - (cleanText.length() % n)));
+            this.forward = new Table(ngrams, substitutes, n);
+        }
+        
+        @Override
+        public String encrypt(String text) {
+            return forward.substitute(text);
+        }
+        
+        @Override
+        public String decrypt(String text) {
+            return inverse().substitute(text);
+        }
+        
+        private Table inverse() {
+            // For decryption, we need to invert the map (if two n-grams share a
+            // substitute, the later one wins)
+            Table table = inverse;
+            if (table == null) {
+                table = new Table(substitutes, ngrams, n);
+                inverse = table;
             }
-        } else {
-            // For decryption, we need to invert the map
-            Map<String, String> invertedMap = new HashMap<>();
-            for (Map.Entry<String, String> entry : substitutionMap.entrySet()) {
-                invertedMap.put(entry.getValue(), entry.getKey());
+            return table;
+        }
+    }
+    
+    /**
+     * One direction of a substitution table, indexed on packed n-grams: in a dense array
+     * when n is small and the table fills enough of it, in a PackedMap when the packed
+     * n-grams fit in a long, and in a plain map otherwise.
+     */
+    private static final class Table {
+        private final int n;
+        
+        // Packed n-gram to packed substitute, -1 where the n-gram is unchanged
+        private final int[] dense;
+        private final PackedMap packed;
+        private final Map<String, String> map;
+        
+        Table(String[] ngrams, String[] substitutes, int n) {
+            this.n = n;
+            int denseSize = 1;
+            for (int i = 0; i < n && i < MAX_DENSE_N; i++) {
+                denseSize *= 26;
             }
             
-            // Now decrypt using the inverted map
-            for (int i = 0; i <= cleanText.length() - n; i += n) {
-                String ngram = cleanText.substring(i, i + n);
-                if (invertedMap.containsKey(ngram)) {
-                    result.append(invertedMap.get(ngram));
-                } else {
-                    result.append(ngram);
+            if (n <= MAX_DENSE_N && ngrams.length >= denseSize / DENSE_MIN_FILL) {
+                this.dense = new int[denseSize];
+                Arrays.fill(dense, -1);
+                for (int i = 0; i < ngrams.length; i++) {
+                    dense[(int) pack(ngrams[i])] = (int) pack(substitutes[i]);
+                }
+                this.packed = null;
+                this.map = null;
+            } else if (n <= MAX_PACKED_N) {
+                this.packed = new PackedMap(ngrams.length);
+                for (int i = 0; i < ngrams.length; i++) {
+                    packed.put(pack(ngrams[i]), pack(substitutes[i]));
+                }
+                this.dense = null;
+                this.map = null;
+            } else {
+                this.map = new HashMap<>();
+                for (int i = 0; i < ngrams.length; i++) {
+                    map.put(ngrams[i], substitutes[i]);
                 }
+                this.dense = null;
+                this.packed = null;
             }
+        }
+        
+        String substitute(String text) {
+            char[] letters = Letters.upperLetters(text);
             
-            // Handle remaining characters
-            if (cleanText.length() % n != 0) {
-                result.append(cleanText.substring(cleanText.length() - (cleanText.length() % n)));
+            // Substitute whole n-grams in place; the remaining characters are kept as they are
+            int end = letters.length - letters.length % n;
+            if (dense != null) {
+                for (int i = 0; i < end; i += n) {
+                    int substitute = dense[(int) pack(letters, i, n)];
+                    if (substitute >= 0) {
+                        unpack(substitute, letters, i, n);
+                    }
+                }
+            } else if (packed != null) {
+                for (int i = 0; i < end; i += n) {
+                    long substitute = packed.get(pack(letters, i, n));
+                    if (substitute >= 0) {
+                        unpack(substitute, letters, i, n);
+                    }
+                }
+            } else {
+                for (int i = 0; i < end; i += n) {
+                    String substitute = map.get(new String(letters, i, n));
+                    if (substitute != null) {
+                        substitute.getChars(0, n, letters, i);
+                    }
+                }
+            }
+            
+            return new String(letters);
+        }
+    }
+    
+    /**
+     * An open-addressing hash map from packed n-grams to packed n-grams, with linear
+     * probing. Packed values are never negative, so -1 marks an empty slot.
+     */
+    private static final class PackedMap {
+        private final long[] keys;
+        private final long[] values;
+        private final int mask;
+        
+        PackedMap(int expectedSize) {
+            // Keep the table at most half full
+            int capacity = Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) * 2;
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
+        
+        void put(long key, long value) {
+            int slot = slot(key);
+            while (keys[slot] != -1 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+        
+        /**
+         * Returns the value for a key, or -1 if there is none.
+         */
+        long get(long key) {
+            int slot = slot(key);
+            while (keys[slot] != -1) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
             }
+            return -1;
         }
         
-        return result.toString();
+        private int slot(long key) {
+            // Fibonacci hashing spreads the base-26 values over the table
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+    
+    private static void checkNGram(String ngram, int n) {
+        if (ngram.length() != n) {
+            throw new IllegalArgumentException("N-gram \"" + ngram + "\" must be " + n + " letters long");
+        }
+        for (int i = 0; i < n; i++) {
+            char character = Character.toUpperCase(ngram.charAt(i));
+            if (character < 'A' || character > 'Z') {
+                throw new IllegalArgumentException("N-gram \"" + ngram + "\" must contain only the letters A-Z");
+            }
+        }
+    }
+    
+    /**
+     * Packs an n-gram as a base-26 number, first letter most significant.
+     */
+    private static long pack(String ngram) {
+        long packed = 0;
+        for (int i = 0; i < ngram.length(); i++) {
+            packed = packed * 26 + (Character.toUpperCase(ngram.charAt(i)) - 'A');
+        }
+        return packed;
+    }
+    
+    private static long pack(char[] letters, int off, int n) {
+        long packed = 0;
+        for (int i = off; i < off + n; i++) {
+            packed = packed * 26 + (letters[i] - 'A');
+        }
+        return packed;
+    }
+    
+    private static void unpack(long packed, char[] letters, int off, int n) {
+        for (int i = off + n - 1; i >= off; i--) {
+            letters[i] = (char) ('A' + packed % 26);
+            packed /= 26;
+        }
     }
     
     public static void main(String[] args) {
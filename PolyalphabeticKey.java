@@ -0,0 +1,182 @@
+/**
+ * Polyalphabetic Key
+ * Base class for the compiled keys of the periodic polyalphabetic ciphers (Vigenere,
+ * Variant Beaufort, Beaufort, Gronsfeld; August uses it for its letters). Each of them
+ * maps a letter through one row of a 26 x 26 tableau chosen by the current key letter,
+ * so they share one hot loop: the key is compiled into the tableau row offset of every
+ * key position, and each letter is a single table lookup with a key counter that wraps
+ * instead of a modulo.
+ * 
+ * The shift tableaux (Vigenere, Variant Beaufort) also pass byte buffers to ShiftKernel,
+ * which vectorises long runs.
+ */
+public abstract class PolyalphabeticKey implements SubstitutionCipher {
+    
+    /**
+     * The tableau a key reads, as a formula for ciphertext letter y from plaintext
+     * letter x and key value k (all 0-25).
+     */
+    public enum Tableau {
+        /** y = x + k; Vigenere, Gronsfeld and August. */
+        VIGENERE,
+        /** y = x - k; Vigenere decryption used for encryption. */
+        VARIANT_BEAUFORT,
+        /** y = k - x; its own inverse. */
+        BEAUFORT;
+        
+        // Row k, column x holds the letter for x under key value k
+        private final byte[] encryptRows = new byte[26 * 26];
+        private final byte[] decryptRows = new byte[26 * 26];
+        
+        static {
+            for (Tableau tableau : values()) {
+                for (int k = 0; k < 26; k++) {
+                    for (int x = 0; x < 26; x++) {
+                        int y = tableau.apply(x, k);
+                        tableau.encryptRows[k * 26 + x] = (byte) y;
+                        tableau.decryptRows[k * 26 + y] = (byte) x;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Returns the plaintext letter value that key value k maps to ciphertext letter y.
+         */
+        int decrypt(int y, int k) {
+            return decryptRows[k * 26 + y];
+        }
+        
+        private int apply(int x, int k) {
+            switch (this) {
+                case VIGENERE:
+                    return (x + k) % 26;
+                case VARIANT_BEAUFORT:
+                    return (x - k + 26) % 26;
+                default:
+                    return (k - x + 26) % 26;
+            }
+        }
+    }
+    
+    private final Tableau tableau;
+    // Row offset (key value * 26) of each key position
+    private final int[] rows;
+    // Key streams for ShiftKernel, or null for a tableau that is not a shift
+    private final byte[] encryptStream;
+    private final byte[] decryptStream;
+    
+    /**
+     * Compiles the key.
+     * 
+     * @param keyValues The key value (0-25) of each key position
+     * @param tableau The tableau the key reads
+     */
+    protected PolyalphabeticKey(int[] keyValues, Tableau tableau) {
+        this.tableau = tableau;
+        this.rows = new int[keyValues.length];
+        int[] shifts = new int[keyValues.length];
+        for (int i = 0; i < keyValues.length; i++) {
+            rows[i] = keyValues[i] * 26;
+            shifts[i] = tableau == Tableau.VARIANT_BEAUFORT ? (26 - keyValues[i]) % 26 : keyValues[i];
+        }
+        
+        if (tableau == Tableau.BEAUFORT) {
+            this.encryptStream = null;
+            this.decryptStream = null;
+        } else {
+            this.encryptStream = ShiftKernel.keyStream(shifts, true);
+            this.decryptStream = ShiftKernel.keyStream(shifts, false);
+        }
+    }
+    
+    /**
+     * Compiles a key that is not tied to one of the cipher classes.
+     * 
+     * @param keyValues The key value (0-25) of each key position
+     * @param tableau The tableau the key reads
+     * @return The compiled key
+     */
+    public static PolyalphabeticKey of(int[] keyValues, Tableau tableau) {
+        if (keyValues.length == 0) {
+            throw new IllegalArgumentException("Key cannot be empty");
+        }
+        for (int value : keyValues) {
+            if (value < 0 || value > 25) {
+                throw new IllegalArgumentException("Key values must be between 0 and 25");
+            }
+        }
+        return new PolyalphabeticKey(keyValues.clone(), tableau) {
+        };
+    }
+    
+    /**
+     * Returns the tableau the key reads.
+     * 
+     * @return The tableau
+     */
+    public Tableau tableau() {
+        return tableau;
+    }
+    
+    @Override
+    public int period() {
+        return rows.length;
+    }
+    
+    @Override
+    public int transform(char[] buf, int off, int len, int keyIndex, boolean encrypt) {
+        byte[] table = encrypt ? tableau.encryptRows : tableau.decryptRows;
+        int end = off + len;
+        
+        for (int i = off; i < end; i++) {
+            char character = buf[i];
+            char base;
+            if (character >= 'A' && character <= 'Z') {
+                base = 'A';
+            } else if (character >= 'a' && character <= 'z') {
+                base = 'a';
+            } else {
+                continue;
+            }
+            
+            buf[i] = (char) (table[rows[keyIndex] + character - base] + base);
+            
+            if (++keyIndex == rows.length) {
+                keyIndex = 0;
+            }
+        }
+        
+        return keyIndex;
+    }
+    
+    @Override
+    public int transform(byte[] buf, int off, int len, int keyIndex, boolean encrypt) {
+        if (encryptStream != null) {
+            return ShiftKernel.shift(buf, off, len, encrypt ? encryptStream : decryptStream, rows.length, keyIndex);
+        }
+        
+        byte[] table = encrypt ? tableau.encryptRows : tableau.decryptRows;
+        int end = off + len;
+        
+        for (int i = off; i < end; i++) {
+            byte character = buf[i];
+            char base;
+            if (character >= 'A' && character <= 'Z') {
+                base = 'A';
+            } else if (character >= 'a' && character <= 'z') {
+                base = 'a';
+            } else {
+                continue;
+            }
+            
+            buf[i] = (byte) (table[rows[keyIndex] + character - base] + base);
+            
+            if (++keyIndex == rows.length) {
+                keyIndex = 0;
+            }
+        }
+        
+        return keyIndex;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,435 @@
+/**
+ * Polyalphabetic Solver
+ * Recovers the key of a periodic polyalphabetic cipher (Vigenere, Gronsfeld, Beaufort,
+ * Variant Beaufort) from ciphertext alone.
+ * 
+ * The period comes first. Splitting the letters into p columns (every p-th letter)
+ * leaves each column enciphered with a single key value when p is the period, so its
+ * index of coincidence is close to English (about 0.066) rather than random text
+ * (about 0.038). Every candidate period is measured in parallel on a sample from the
+ * start of the text, and the smallest period that comes close to the best average is
+ * chosen, since multiples of the period score just as well.
+ * 
+ * Each column's key value is then the one whose decryption of the column's letter
+ * counts is nearest English by the chi-squared statistic. The counts are gathered in
+ * one parallel pass over the whole text: every chunk counts its letters into its own
+ * int[26] per column as if it started at column 0, and the chunk totals are rotated
+ * into place by the number of letters before the chunk. Files are memory-mapped, so
+ * inputs of any size are read without copying them onto the heap.
+ */
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class PolyalphabeticSolver {
+    
+    // Letters from the start of the text used to choose the period
+    private static final int SAMPLE_LETTERS = 1 << 20;
+    
+    // A period is chosen if its average index of coincidence is within this fraction
+    // of the best candidate's
+    private static final double PERIOD_TOLERANCE = 0.9;
+    
+    // Bytes of a file mapped and counted as one chunk
+    private static final int FILE_CHUNK_SIZE = 1 << 24;
+    
+    // Below this many characters per chunk a string is counted on one thread
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    
+    /**
+     * Recovers a key from ciphertext.
+     * 
+     * @param ciphertext The ciphertext
+     * @param tableau The tableau of the cipher (VIGENERE for Vigenere)
+     * @param maxPeriod The longest key length to consider
+     * @return The recovered key
+     * @throws IllegalArgumentException If the ciphertext is too short
+     */
+    public static Result solve(String ciphertext, PolyalphabeticKey.Tableau tableau, int maxPeriod) {
+        return solve(stringChunks(ciphertext), tableau, 26, maxPeriod);
+    }
+    
+    /**
+     * Recovers a key from a ciphertext file (ASCII or UTF-8).
+     * 
+     * @param file The ciphertext file
+     * @param tableau The tableau of the cipher (VIGENERE for Vigenere)
+     * @param maxPeriod The longest key length to consider
+     * @return The recovered key
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the ciphertext is too short
+     */
+    public static Result solve(Path file, PolyalphabeticKey.Tableau tableau, int maxPeriod) throws IOException {
+        return solve(fileChunks(file), tableau, 26, maxPeriod);
+    }
+    
+    /**
+     * Recovers a Gronsfeld key, whose key values are only the digits 0-9.
+     * 
+     * @param ciphertext The ciphertext
+     * @param maxPeriod The longest key length to consider
+     * @return The recovered key
+     * @throws IllegalArgumentException If the ciphertext is too short
+     */
+    public static Result solveGronsfeld(String ciphertext, int maxPeriod) {
+        return solve(stringChunks(ciphertext), PolyalphabeticKey.Tableau.VIGENERE, 10, maxPeriod);
+    }
+    
+    /**
+     * Recovers a Gronsfeld key from a ciphertext file (ASCII or UTF-8).
+     * 
+     * @param file The ciphertext file
+     * @param maxPeriod The longest key length to consider
+     * @return The recovered key
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the ciphertext is too short
+     */
+    public static Result solveGronsfeld(Path file, int maxPeriod) throws IOException {
+        return solve(fileChunks(file), PolyalphabeticKey.Tableau.VIGENERE, 10, maxPeriod);
+    }
+    
+    /**
+     * A recovered key.
+     */
+    public static final class Result {
+        private final PolyalphabeticKey.Tableau tableau;
+        private final int[] keyValues;
+        private final double[] coincidences;
+        
+        private Result(PolyalphabeticKey.Tableau tableau, int[] keyValues, double[] coincidences) {
+            this.tableau = tableau;
+            this.keyValues = keyValues;
+            this.coincidences = coincidences;
+        }
+        
+        /**
+         * Returns the key length.
+         * 
+         * @return The period
+         */
+        public int period() {
+            return keyValues.length;
+        }
+        
+        /**
+         * Returns the key value (0-25) of each key position.
+         * 
+         * @return A copy of the key values
+         */
+        public int[] keyValues() {
+            return keyValues.clone();
+        }
+        
+        /**
+         * Returns the keyword, in the form the cipher class takes it. BeaufortCipher
+         * uses the keyword character mod 26 rather than its alphabet index, so its
+         * keyword letters are offset to match.
+         * 
+         * @return The keyword
+         */
+        public String keyword() {
+            int offset = tableau == PolyalphabeticKey.Tableau.BEAUFORT ? 'A' % 26 : 0;
+            char[] keyword = new char[keyValues.length];
+            for (int i = 0; i < keyValues.length; i++) {
+                keyword[i] = (char) ('A' + Math.floorMod(keyValues[i] - offset, 26));
+            }
+            return new String(keyword);
+        }
+        
+        /**
+         * Returns the key as Gronsfeld digits.
+         * 
+         * @return The digits
+         * @throws IllegalStateException If a key value is not a digit
+         */
+        public String digits() {
+            char[] digits = new char[keyValues.length];
+            for (int i = 0; i < keyValues.length; i++) {
+                if (keyValues[i] > 9) {
+                    throw new IllegalStateException("Key value " + keyValues[i] + " is not a Gronsfeld digit");
+                }
+                digits[i] = (char) ('0' + keyValues[i]);
+            }
+            return new String(digits);
+        }
+        
+        /**
+         * Compiles the recovered key.
+         * 
+         * @return The compiled key
+         */
+        public PolyalphabeticKey key() {
+            return PolyalphabeticKey.of(keyValues, tableau);
+        }
+        
+        /**
+         * Returns the average index of coincidence of the columns for each candidate
+         * period, indexed by period (entry 0 is unused).
+         * 
+         * @return A copy of the indices of coincidence
+         */
+        public double[] coincidences() {
+            return coincidences.clone();
+        }
+    }
+    
+    /**
+     * A section of the ciphertext that can be counted independently.
+     */
+    private interface Chunk {
+        /**
+         * Adds the chunk's letters to counts[column * 26 + letter], starting at column 0.
+         * 
+         * @return The number of letters in the chunk
+         */
+        int countColumns(int[] counts, int period);
+        
+        /**
+         * Copies the chunk's letter values into the sample from offset onwards, until
+         * the sample is full.
+         * 
+         * @return The new offset
+         */
+        int sample(byte[] values, int offset);
+    }
+    
+    private static Result solve(List<Chunk> chunks, PolyalphabeticKey.Tableau tableau, int keyRange, int maxPeriod) {
+        if (maxPeriod < 1) {
+            throw new IllegalArgumentException("Maximum period must be at least 1");
+        }
+        
+        // Take the sample and measure every candidate period on it
+        byte[] sample = new byte[SAMPLE_LETTERS];
+        int sampleLength = 0;
+        for (int c = 0; c < chunks.size() && sampleLength < sample.length; c++) {
+            sampleLength = chunks.get(c).sample(sample, sampleLength);
+        }
+        
+        // Every column needs at least two letters to have an index of coincidence
+        int periods = Math.min(maxPeriod, sampleLength / 2);
+        if (periods < 1) {
+            throw new IllegalArgumentException("Ciphertext must contain at least two letters");
+        }
+        
+        int length = sampleLength;
+        double[] coincidences = new double[periods + 1];
+        IntStream.rangeClosed(1, periods).parallel()
+                .forEach(period -> coincidences[period] = averageCoincidence(sample, length, period));
+        
+        double best = 0;
+        for (int period = 1; period <= periods; period++) {
+            best = Math.max(best, coincidences[period]);
+        }
+        int period = 1;
+        while (coincidences[period] < best * PERIOD_TOLERANCE) {
+            period++;
+        }
+        
+        // Count every column over the whole text and solve each one
+        long[] counts = countColumns(chunks, period);
+        int[] keyValues = new int[period];
+        for (int column = 0; column < period; column++) {
+            keyValues[column] = solveColumn(counts, column * 26, tableau, keyRange);
+        }
+        
+        return new Result(tableau, keyValues, coincidences);
+    }
+    
+    private static double averageCoincidence(byte[] values, int length, int period) {
+        int[] counts = new int[period * 26];
+        int row = 0;
+        int end = period * 26;
+        for (int i = 0; i < length; i++) {
+            counts[row + values[i]]++;
+            row += 26;
+            if (row == end) {
+                row = 0;
+            }
+        }
+        
+        double total = 0;
+        for (int column = 0; column < period; column++) {
+            long pairs = 0;
+            long letters = 0;
+            for (int letter = 0; letter < 26; letter++) {
+                long count = counts[column * 26 + letter];
+                pairs += count * (count - 1);
+                letters += count;
+            }
+            total += (double) pairs / (letters * (letters - 1));
+        }
+        return total / period;
+    }
+    
+    /**
+     * Counts the letters of every column in parallel, one chunk per task, and combines
+     * the chunk counts in text order.
+     */
+    private static long[] countColumns(List<Chunk> chunks, int period) {
+        int[][] chunkCounts = new int[chunks.size()][];
+        int[] chunkLetters = new int[chunks.size()];
+        IntStream.range(0, chunks.size()).parallel().forEach(c -> {
+            chunkCounts[c] = new int[period * 26];
+            chunkLetters[c] = chunks.get(c).countColumns(chunkCounts[c], period);
+        });
+        
+        long[] counts = new long[period * 26];
+        long lettersBefore = 0;
+        for (int c = 0; c < chunks.size(); c++) {
+            // Local column j of this chunk is column (lettersBefore + j) mod period
+            int shift = (int) (lettersBefore % period);
+            for (int j = 0; j < period; j++) {
+                int column = (shift + j) % period;
+                for (int letter = 0; letter < 26; letter++) {
+                    counts[column * 26 + letter] += chunkCounts[c][j * 26 + letter];
+                }
+            }
+            lettersBefore += chunkLetters[c];
+        }
+        return counts;
+    }
+    
+    /**
+     * Returns the key value whose decryption of the column is nearest English by the
+     * chi-squared statistic.
+     */
+    private static int solveColumn(long[] counts, int row, PolyalphabeticKey.Tableau tableau, int keyRange) {
+        long letters = 0;
+        for (int letter = 0; letter < 26; letter++) {
+            letters += counts[row + letter];
+        }
+        
+        int bestKey = 0;
+        double bestChiSquared = Double.MAX_VALUE;
+        for (int key = 0; key < keyRange; key++) {
+            double chiSquared = 0;
+            for (int y = 0; y < 26; y++) {
+                double expected = letters * EnglishFitness.LETTER_FREQUENCIES[tableau.decrypt(y, key)];
+                double difference = counts[row + y] - expected;
+                chiSquared += difference * difference / expected;
+            }
+            if (chiSquared < bestChiSquared) {
+                bestChiSquared = chiSquared;
+                bestKey = key;
+            }
+        }
+        return bestKey;
+    }
+    
+    private static List<Chunk> stringChunks(String text) {
+        int chunkCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4,
+                text.length() / MIN_CHUNK_SIZE));
+        int chunkSize = (text.length() + chunkCount - 1) / chunkCount;
+        
+        List<Chunk> chunks = new ArrayList<>(chunkCount);
+        for (int c = 0; c < chunkCount; c++) {
+            int from = Math.min(text.length(), c * chunkSize);
+            int to = Math.min(text.length(), from + chunkSize);
+            chunks.add(new Chunk() {
+                @Override
+                public int countColumns(int[] counts, int period) {
+                    int end = period * 26;
+                    int row = 0;
+                    int letters = 0;
+                    for (int i = from; i < to; i++) {
+                        int value = EnglishFitness.letterValue(text.charAt(i));
+                        if (value >= 0) {
+                            counts[row + value]++;
+                            letters++;
+                            row += 26;
+                            if (row == end) {
+                                row = 0;
+                            }
+                        }
+                    }
+                    return letters;
+                }
+                
+                @Override
+                public int sample(byte[] values, int offset) {
+                    for (int i = from; i < to && offset < values.length; i++) {
+                        int value = EnglishFitness.letterValue(text.charAt(i));
+                        if (value >= 0) {
+                            values[offset++] = (byte) value;
+                        }
+                    }
+                    return offset;
+                }
+            });
+        }
+        return chunks;
+    }
+    
+    /**
+     * Maps the file as a list of chunks. The mappings stay valid after the channel is
+     * closed. Multi-byte UTF-8 sequences contain no ASCII bytes, so they are skipped
+     * like any other non-letter.
+     */
+    private static List<Chunk> fileChunks(Path file) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += FILE_CHUNK_SIZE) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(FILE_CHUNK_SIZE, size - position));
+                chunks.add(new Chunk() {
+                    @Override
+                    public int countColumns(int[] counts, int period) {
+                        int end = period * 26;
+                        int row = 0;
+                        int letters = 0;
+                        for (int i = 0; i < region.limit(); i++) {
+                            int value = EnglishFitness.letterValue((char) region.get(i));
+                            if (value >= 0) {
+                                counts[row + value]++;
+                                letters++;
+                                row += 26;
+                                if (row == end) {
+                                    row = 0;
+                                }
+                            }
+                        }
+                        return letters;
+                    }
+                    
+                    @Override
+                    public int sample(byte[] values, int offset) {
+                        for (int i = 0; i < region.limit() && offset < values.length; i++) {
+                            int value = EnglishFitness.letterValue((char) region.get(i));
+                            if (value >= 0) {
+                                values[offset++] = (byte) value;
+                            }
+                        }
+                        return offset;
+                    }
+                });
+            }
+        }
+        return chunks;
+    }
+    
+    public static void main(String[] args) {
+        StringBuilder plaintext = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            plaintext.append("It was the best of times, it was the worst of times, it was the age of wisdom, ");
+            plaintext.append("it was the age of foolishness, it was the epoch of belief. ");
+        }
+        
+        String ciphertext = VigenereCipher.process(plaintext.toString(), "LEMONADE", true);
+        Result result = solve(ciphertext, PolyalphabeticKey.Tableau.VIGENERE, 20);
+        System.out.println("Vigenere period: " + result.period() + ", keyword: " + result.keyword());
+        
+        ciphertext = BeaufortCipher.process(plaintext.toString(), "FORTIFICATION");
+        result = solve(ciphertext, PolyalphabeticKey.Tableau.BEAUFORT, 20);
+        System.out.println("Beaufort period: " + result.period() + ", keyword: " + result.keyword());
+        
+        ciphertext = GronsfeldCipher.process(plaintext.toString(), "31415", true);
+        result = solveGronsfeld(ciphertext, 20);
+        System.out.println("Gronsfeld period: " + result.period() + ", digits: " + result.digits());
+    }
+}
\ No newline at end of file
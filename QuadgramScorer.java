@@ -0,0 +1,255 @@
+/**
+ * Quadgram Scorer
+ * Scores text by the log-probability of its four-letter groups (quadgrams), the usual
+ * fitness measure for ciphertext-only key searches. The log-probabilities are held in
+ * one flat table of 26^4 floats outside the Java heap: either memory-mapped from a
+ * binary file made by the builder, or built in a direct buffer. Scoring keeps a rolling
+ * base-26 index of the last four letters, so each letter costs one multiply-add and one
+ * table read, with no allocation.
+ * 
+ * The builder counts unigrams to quadgrams in a corpus. A quadgram that never occurs
+ * backs off to its last trigram, bigram or letter, each step discounted, so rare
+ * quadgrams are scored between common ones and impossible ones.
+ * 
+ * Binary file format: the magic number QG4F, then the 26^4 floats, big-endian, indexed
+ * by a * 26^3 + b * 26^2 + c * 26 + d.
+ */
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class QuadgramScorer implements FitnessFunction {
+    
+    // Number of quadgrams, and the table index they wrap at
+    static final int SIZE = 26 * 26 * 26 * 26;
+    
+    private static final int MAGIC = ('Q' << 24) | ('G' << 16) | ('4' << 8) | 'F';
+    
+    // Weight of each back-off step for quadgrams missing from the corpus
+    private static final double BACKOFF = 0.4;
+    
+    private final FloatBuffer table;
+    
+    private QuadgramScorer(FloatBuffer table) {
+        this.table = table;
+    }
+    
+    /**
+     * Maps a table written by save(). The table stays on disk and in the page cache,
+     * so any number of scorers (and processes) can share it.
+     * 
+     * @param file The binary table
+     * @return The scorer
+     * @throws IOException If the file cannot be read or is not a quadgram table
+     */
+    public static QuadgramScorer load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != 4 + 4L * SIZE) {
+                throw new IOException("Not a quadgram table: " + file);
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a quadgram table: " + file);
+            }
+            return new QuadgramScorer(mapped.position(4).slice().asFloatBuffer());
+        }
+    }
+    
+    /**
+     * Builds a table from a corpus of text. Only the letters are used.
+     * 
+     * @param corpus The corpus (read to the end, not closed)
+     * @return The scorer
+     * @throws IOException If the corpus cannot be read
+     */
+    public static QuadgramScorer build(Reader corpus) throws IOException {
+        long[] unigrams = new long[26];
+        long[] bigrams = new long[26 * 26];
+        long[] trigrams = new long[26 * 26 * 26];
+        long[] quadgrams = new long[SIZE];
+        long letters = 0;
+        int index = 0;
+        
+        char[] buffer = new char[8192];
+        int count;
+        while ((count = corpus.read(buffer)) != -1) {
+            for (int i = 0; i < count; i++) {
+                int letter = EnglishFitness.letterValue(buffer[i]);
+                if (letter < 0) {
+                    continue;
+                }
+                index = (index * 26 + letter) % SIZE;
+                letters++;
+                
+                // Count every group that ends at this letter
+                unigrams[letter]++;
+                if (letters >= 2) {
+                    bigrams[index % (26 * 26)]++;
+                }
+                if (letters >= 3) {
+                    trigrams[index % (26 * 26 * 26)]++;
+                }
+                if (letters >= 4) {
+                    quadgrams[index]++;
+                }
+            }
+        }
+        if (letters < 4) {
+            throw new IllegalArgumentException("Corpus must contain at least four letters");
+        }
+        
+        // Letters are add-one smoothed so that every quadgram has a finite score
+        double[] letterProbabilities = new double[26];
+        for (int a = 0; a < 26; a++) {
+            letterProbabilities[a] = (unigrams[a] + 1.0) / (letters + 26);
+        }
+        
+        FloatBuffer table = ByteBuffer.allocateDirect(4 * SIZE).asFloatBuffer();
+        for (int q = 0; q < SIZE; q++) {
+            double probability;
+            if (quadgrams[q] > 0) {
+                probability = (double) quadgrams[q] / (letters - 3);
+            } else if (trigrams[q % (26 * 26 * 26)] > 0) {
+                probability = BACKOFF * letterProbabilities[q / (26 * 26 * 26)]
+                        * trigrams[q % (26 * 26 * 26)] / (letters - 2);
+            } else if (bigrams[q % (26 * 26)] > 0) {
+                probability = BACKOFF * BACKOFF * letterProbabilities[q / (26 * 26 * 26)]
+                        * letterProbabilities[q / (26 * 26) % 26] * bigrams[q % (26 * 26)] / (letters - 1);
+            } else {
+                probability = BACKOFF * BACKOFF * BACKOFF * letterProbabilities[q / (26 * 26 * 26)]
+                        * letterProbabilities[q / (26 * 26) % 26] * letterProbabilities[q / 26 % 26]
+                        * letterProbabilities[q % 26];
+            }
+            table.put(q, (float) Math.log(probability));
+        }
+        return new QuadgramScorer(table);
+    }
+    
+    /**
+     * Builds a table without a corpus, from the bigram model of EnglishFitness: each
+     * quadgram is treated as a chain of bigrams, P(abcd) = P(ab) P(c|b) P(d|c).
+     * A corpus-built table is more accurate.
+     * 
+     * @return The scorer
+     */
+    public static QuadgramScorer english() {
+        double[] logLetters = new double[26];
+        for (int a = 0; a < 26; a++) {
+            logLetters[a] = Math.log(EnglishFitness.LETTER_FREQUENCIES[a]);
+        }
+        
+        double[] logBigrams = EnglishFitness.LOG_BIGRAMS;
+        FloatBuffer table = ByteBuffer.allocateDirect(4 * SIZE).asFloatBuffer();
+        for (int q = 0; q < SIZE; q++) {
+            int a = q / (26 * 26 * 26);
+            int b = q / (26 * 26) % 26;
+            int c = q / 26 % 26;
+            int d = q % 26;
+            double logProbability = logBigrams[a * 26 + b]
+                    + logBigrams[b * 26 + c] - logLetters[b]
+                    + logBigrams[c * 26 + d] - logLetters[c];
+            table.put(q, (float) logProbability);
+        }
+        return new QuadgramScorer(table);
+    }
+    
+    /**
+     * Writes the table in the format load() reads.
+     * 
+     * @param file The file to write (created or truncated)
+     * @throws IOException If the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(4 + 4 * SIZE);
+        bytes.putInt(MAGIC);
+        for (int q = 0; q < SIZE; q++) {
+            bytes.putFloat(table.get(q));
+        }
+        bytes.flip();
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+    
+    /**
+     * Returns the log-probability of one quadgram, for searches that update a score
+     * incrementally when they change a few letters.
+     * 
+     * @param index The quadgram's base-26 index (a * 26^3 + b * 26^2 + c * 26 + d)
+     * @return The log-probability
+     */
+    public float logProbability(int index) {
+        return table.get(index);
+    }
+    
+    @Override
+    public double score(char[] text, int off, int len) {
+        double score = 0;
+        int index = 0;
+        int letters = 0;
+        
+        for (int i = off; i < off + len; i++) {
+            int letter = EnglishFitness.letterValue(text[i]);
+            if (letter < 0) {
+                continue;
+            }
+            index = (index * 26 + letter) % SIZE;
+            if (++letters >= 4) {
+                score += table.get(index);
+            }
+        }
+        
+        return score;
+    }
+    
+    /**
+     * Scores letters already reduced to their values 0-25, skipping the letter tests.
+     * 
+     * @param values The letter values
+     * @param off The index of the first letter
+     * @param len The number of letters
+     * @return The score (higher is more language-like)
+     */
+    public double score(byte[] values, int off, int len) {
+        if (len < 4) {
+            return 0;
+        }
+        
+        int index = (values[off] * 26 + values[off + 1]) * 26 + values[off + 2];
+        double score = 0;
+        for (int i = off + 3; i < off + len; i++) {
+            index = (index * 26 + values[i]) % SIZE;
+            score += table.get(index);
+        }
+        return score;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        QuadgramScorer scorer;
+        if (args.length == 2) {
+            // Build a table from a corpus and save it
+            try (Reader corpus = Files.newBufferedReader(Path.of(args[0]))) {
+                scorer = build(corpus);
+            }
+            scorer.save(Path.of(args[1]));
+            System.out.println("Wrote " + args[1]);
+        } else if (args.length == 1) {
+            scorer = load(Path.of(args[0]));
+        } else {
+            System.out.println("Usage: QuadgramScorer <corpus> <table> (build) or QuadgramScorer <table> (try)");
+            scorer = english();
+        }
+        
+        System.out.println("English: " + scorer.score("Meet me at the old mill by the river at noon"));
+        System.out.println("Shifted: " + scorer.score(CaesarCipher.process("Meet me at the old mill by the river at noon", 7, true)));
+    }
+}
\ No newline at end of file
@@ -1,9 +1,25 @@
 /**
  * Rail Fence Cipher Implementation
  * This is a transposition cipher that arranges the plaintext in a zigzag pattern.
+ * The zigzag repeats every 2 * (rails - 1) characters, so rail r holds the characters at
+ * positions r and 2 * (rails - 1) - r of every cycle. Each character's place is computed
+ * directly from that, without building the rails * length grid.
  */
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 public class RailFenceCipher {
     
+    // Size of each mapped region of a file
+    private static final long REGION_SIZE = 64L * 1024 * 1024;
+    
+    // Size of the buffer the streaming methods collect output in
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    
     /**
      * Encrypts or decrypts text using the Rail Fence cipher.
      * 
@@ -13,14 +29,40 @@ public class RailFenceCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, int rails, boolean encrypt) {
+        return compile(rails).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a rail count into a reusable key.
+     * 
+     * @param rails The number of rails (rows)
+     * @return The compiled key
+     */
+    public static CompiledKey compile(int rails) {
         if (rails < 2) {
             throw new IllegalArgumentException("Number of rails must be at least 2");
         }
+        return new CompiledKey(rails);
+    }
+    
+    /**
+     * A compiled Rail Fence key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey implements Cipher {
+        private final int rails;
         
-        if (encrypt) {
-            return encrypt(text, rails);
-        } else {
-            return decrypt(text, rails);
+        private CompiledKey(int rails) {
+            this.rails = rails;
+        }
+        
+        @Override
+        public String encrypt(String text) {
+            return RailFenceCipher.encrypt(text, rails);
+        }
+        
+        @Override
+        public String decrypt(String text) {
+            return RailFenceCipher.decrypt(text, rails);
         }
     }
     
@@ -29,101 +71,283 @@ public class RailFenceCipher {
      */
     private static String encrypt(String text, int rails) {
         // Remove spaces
-        String cleanText = text.replaceAll("\\s", "");
+        char[] plain = text.replaceAll("\\s", "").toCharArray();
+        char[] result = new char[plain.length];
+        transpose(plain, result, rails, 0, true);
+        return new String(result);
+    }
+    
+    /**
+     * Decrypts text using the Rail Fence cipher.
+     */
+    private static String decrypt(String text, int rails) {
+        char[] cipher = text.toCharArray();
+        char[] result = new char[cipher.length];
+        transpose(cipher, result, rails, 0, false);
+        return new String(result);
+    }
+    
+    /**
+     * Encrypts or decrypts a whole array into another of the same length. The offset
+     * starts the zigzag part-way through its first cycle, as if that many characters
+     * came before the text.
+     * 
+     * Encryption reads the zigzag off rail by rail, jumping straight to each rail's
+     * characters; decryption visits the same positions in the same order and puts each
+     * character back.
+     */
+    static void transpose(char[] src, char[] dst, int rails, int offset, boolean encrypt) {
+        long virtualLength = (long) src.length + offset;
+        long cycle = 2L * (rails - 1);
+        int index = 0;
         
-        // Create the rail fence
-        char[][] fence = new char[rails][cleanText.length()];
-        for (int i = 0; i < rails; i++) {
-            for (int j = 0; j < cleanText.length(); j++) {
-                fence[i][j] = '\0';
+        for (int rail = 0; rail < rails && rail < virtualLength; rail++) {
+            boolean middle = rail != 0 && rail != rails - 1;
+            for (long base = 0; base + rail < virtualLength; base += cycle) {
+                long down = base + rail - offset;
+                if (down >= 0) {
+                    if (encrypt) {
+                        dst[index++] = src[(int) down];
+                    } else {
+                        dst[(int) down] = src[index++];
+                    }
+                }
+                
+                long up = base + cycle - rail;
+                if (middle && up < virtualLength && up >= offset) {
+                    if (encrypt) {
+                        dst[index++] = src[(int) (up - offset)];
+                    } else {
+                        dst[(int) (up - offset)] = src[index++];
+                    }
+                }
             }
         }
+    }
+    
+    /**
+     * Decrypts only the first characters of a ciphertext. Each plaintext position is
+     * mapped straight to its ciphertext index, so the cost is O(rails + count) however
+     * long the ciphertext is.
+     * 
+     * @param cipher The ciphertext
+     * @param rails The number of rails
+     * @param offset The zigzag offset (see transpose)
+     * @param prefix The buffer to write the plaintext characters to
+     * @param count The number of characters to decrypt (at most the ciphertext length)
+     * @param railStart Scratch space for at least min(rails, length + offset) entries
+     */
+    static void decryptPrefix(char[] cipher, int rails, int offset, char[] prefix, int count, long[] railStart) {
+        long virtualLength = (long) cipher.length + offset;
+        long cycle = 2L * (rails - 1);
         
-        // Fill the fence with characters
-        int row = 0;
-        int direction = 1;  // 1 = down, -1 = up
+        // Rail r starts after the real characters on rails 0 to r-1. The offset's
+        // phantom characters come first on every rail, so they are counted out here
+        int usedRails = (int) Math.min(rails, virtualLength);
+        long start = 0;
+        for (int rail = 0; rail < usedRails; rail++) {
+            long phantoms = railLength(offset, rail, rails);
+            railStart[rail] = start - phantoms;
+            start += railLength(virtualLength, rail, rails) - phantoms;
+        }
         
-        for (int i = 0; i < cleanText.length(); i++) {
-            fence[row][i] = cleanText.charAt(i);
-            
-            // Change direction if we hit the top or bottom rail
-            if (row == 0) {
-                direction = 1;
-            } else if (row == rails - 1) {
-                direction = -1;
+        long cycleNumber = offset / cycle;
+        long phase = offset % cycle;
+        for (int i = 0; i < count; i++) {
+            long cipherIndex;
+            if (phase == 0) {
+                cipherIndex = railStart[0] + cycleNumber;
+            } else if (phase == rails - 1) {
+                cipherIndex = railStart[rails - 1] + cycleNumber;
+            } else if (phase < rails) {
+                cipherIndex = railStart[(int) phase] + 2 * cycleNumber;
+            } else {
+                cipherIndex = railStart[(int) (cycle - phase)] + 2 * cycleNumber + 1;
             }
+            prefix[i] = cipher[(int) cipherIndex];
             
-            row += direction;
+            if (++phase == cycle) {
+                phase = 0;
+                cycleNumber++;
+            }
+        }
+    }
+    
+    /**
+     * Encrypts a file rail by rail into a stream. The file is memory-mapped and each
+     * rail's bytes are read straight from their positions, so only a small output
+     * buffer is held on the heap whatever the size of the file.
+     * 
+     * Unlike process(), this transposes every byte exactly as given: whitespace is not
+     * removed, so strip it beforehand if the output must match process().
+     * 
+     * @param source The file to encrypt
+     * @param rails The number of rails (rows)
+     * @param out The stream to write the ciphertext to (not closed)
+     * @throws IOException If the file cannot be read or the stream written
+     */
+    public static void encrypt(Path source, int rails, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            transpose(MappedSource.map(channel), rails, out, true);
+        }
+    }
+    
+    /**
+     * Encrypts the remaining bytes of a buffer rail by rail into a stream. The buffer's
+     * position is not changed, so the same buffer (for example a mapped file) can be
+     * read again.
+     * 
+     * @param source The bytes to encrypt, from its position to its limit
+     * @param rails The number of rails (rows)
+     * @param out The stream to write the ciphertext to (not closed)
+     * @throws IOException If the stream cannot be written
+     */
+    public static void encrypt(ByteBuffer source, int rails, OutputStream out) throws IOException {
+        transpose(MappedSource.wrap(source), rails, out, true);
+    }
+    
+    /**
+     * Decrypts a file into a stream, writing the plaintext in order. Each byte is
+     * read from its computed position in the ciphertext; the only state is the start
+     * offset of each rail.
+     * 
+     * @param source The file to decrypt
+     * @param rails The number of rails (rows)
+     * @param out The stream to write the plaintext to (not closed)
+     * @throws IOException If the file cannot be read or the stream written
+     */
+    public static void decrypt(Path source, int rails, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            transpose(MappedSource.map(channel), rails, out, false);
         }
+    }
+    
+    /**
+     * Decrypts the remaining bytes of a buffer into a stream without changing the
+     * buffer's position.
+     * 
+     * @param source The bytes to decrypt, from its position to its limit
+     * @param rails The number of rails (rows)
+     * @param out The stream to write the plaintext to (not closed)
+     * @throws IOException If the stream cannot be written
+     */
+    public static void decrypt(ByteBuffer source, int rails, OutputStream out) throws IOException {
+        transpose(MappedSource.wrap(source), rails, out, false);
+    }
+    
+    private static void transpose(MappedSource source, int rails, OutputStream out, boolean encrypt)
+            throws IOException {
+        if (rails < 2) {
+            throw new IllegalArgumentException("Number of rails must be at least 2");
+        }
+        
+        long length = source.size;
+        long cycle = 2L * (rails - 1);
+        byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+        int buffered = 0;
         
-        // Read off the fence
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < rails; i++) {
-            for (int j = 0; j < cleanText.length(); j++) {
-                if (fence[i][j] != '\0') {
-                    result.append(fence[i][j]);
+        if (encrypt) {
+            for (int rail = 0; rail < rails && rail < length; rail++) {
+                for (long base = 0; base + rail < length; base += cycle) {
+                    if (buffered > buffer.length - 2) {
+                        out.write(buffer, 0, buffered);
+                        buffered = 0;
+                    }
+                    buffer[buffered++] = source.get(base + rail);
+                    long up = base + cycle - rail;
+                    if (rail != 0 && rail != rails - 1 && up < length) {
+                        buffer[buffered++] = source.get(up);
+                    }
+                }
+            }
+        } else {
+            // Rail r starts after all the characters on rails 0 to r-1
+            int usedRails = (int) Math.min(rails, length);
+            long[] railStart = new long[usedRails];
+            long offset = 0;
+            for (int rail = 0; rail < usedRails; rail++) {
+                railStart[rail] = offset;
+                offset += railLength(length, rail, rails);
+            }
+            
+            // Walk the zigzag, tracking the cycle number and the position in the cycle
+            long cycleNumber = 0;
+            long phase = 0;
+            for (long i = 0; i < length; i++) {
+                long cipherIndex;
+                if (phase == 0) {
+                    cipherIndex = cycleNumber;
+                } else if (phase == rails - 1) {
+                    cipherIndex = railStart[rails - 1] + cycleNumber;
+                } else if (phase < rails) {
+                    cipherIndex = railStart[(int) phase] + 2 * cycleNumber;
+                } else {
+                    cipherIndex = railStart[(int) (cycle - phase)] + 2 * cycleNumber + 1;
+                }
+                
+                if (buffered == buffer.length) {
+                    out.write(buffer, 0, buffered);
+                    buffered = 0;
+                }
+                buffer[buffered++] = source.get(cipherIndex);
+                
+                if (++phase == cycle) {
+                    phase = 0;
+                    cycleNumber++;
                 }
             }
         }
         
-        return result.toString();
+        out.write(buffer, 0, buffered);
     }
     
     /**
-     * Decrypts text using the Rail Fence cipher.
+     * Counts the characters of a text of the given length that fall on a rail.
      */
-    private static String decrypt(String text, int rails) {
-        char[][] fence = new char[rails][text.length()];
+    private static long railLength(long length, int rail, int rails) {
+        long cycle = 2L * (rails - 1);
+        long fullCycles = length / cycle;
+        long remainder = length % cycle;
         
-        // Initialize the fence with placeholder characters
-        for (int i = 0; i < rails; i++) {
-            for (int j = 0; j < text.length(); j++) {
-                fence[i][j] = '\0';
-            }
+        if (rail == 0 || rail == rails - 1) {
+            return fullCycles + (remainder > rail ? 1 : 0);
+        }
+        return 2 * fullCycles + (remainder > rail ? 1 : 0) + (remainder > cycle - rail ? 1 : 0);
+    }
+    
+    /**
+     * Random access to a byte range by absolute index, over one buffer or a file mapped
+     * as a series of regions.
+     */
+    private static final class MappedSource {
+        private final ByteBuffer[] regions;
+        private final long size;
+        
+        private MappedSource(ByteBuffer[] regions, long size) {
+            this.regions = regions;
+            this.size = size;
         }
         
-        // Mark the positions where characters will be placed
-        int row = 0;
-        int direction = 1;
-        for (int i = 0; i < text.length(); i++) {
-            fence[row][i] = '*';
-            
-            if (row == 0) {
-                direction = 1;
-            } else if (row == rails - 1) {
-                direction = -1;
-            }
-            
-            row += direction;
+        static MappedSource wrap(ByteBuffer buffer) {
+            return new MappedSource(new ByteBuffer[] {buffer.slice()}, buffer.remaining());
         }
         
-        // Fill the fence with characters from the ciphertext
-        int index = 0;
-        for (int i = 0; i < rails; i++) {
-            for (int j = 0; j < text.length(); j++) {
-                if (fence[i][j] == '*' && index < text.length()) {
-                    fence[i][j] = text.charAt(index++);
-                }
+        static MappedSource map(FileChannel channel) throws IOException {
+            long size = channel.size();
+            ByteBuffer[] regions = new ByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+            for (int i = 0; i < regions.length; i++) {
+                long position = i * REGION_SIZE;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, size - position));
             }
+            return new MappedSource(regions, size);
         }
         
-        // Read off the fence in zigzag pattern
-        StringBuilder result = new StringBuilder();
-        row = 0;
-        direction = 1;
-        for (int i = 0; i < text.length(); i++) {
-            result.append(fence[row][i]);
-            
-            if (row == 0) {
-                direction = 1;
-            } else if (row == rails - 1) {
-                direction = -1;
+        byte get(long index) {
+            if (regions.length == 1) {
+                return regions[0].get((int) index);
             }
-            
-            row += direction;
+            return regions[(int) (index / REGION_SIZE)].get((int) (index % REGION_SIZE));
         }
-        
-        return result.toString();
     }
     
     public static void main(String[] args) {
@@ -0,0 +1,177 @@
+/**
+ * Rail Fence Solver
+ * Finds the rail count (and optionally the offset) of a Rail Fence ciphertext by trying
+ * every candidate and scoring the result with a fitness function.
+ * 
+ * Candidates are not decrypted in full. Each plaintext position maps straight to its
+ * ciphertext index, so only the first SAMPLE_LENGTH characters of every candidate are
+ * decrypted, into a buffer reused by each worker, and scored into one flat array. The
+ * cost per candidate is O(rails + sample) however long the ciphertext is. The rail
+ * counts are split between the cores, and only the best candidates are decrypted in
+ * full at the end.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class RailFenceSolver {
+    
+    // Number of leading plaintext characters each candidate is scored on
+    private static final int SAMPLE_LENGTH = 2048;
+    
+    /**
+     * A scored rail count and offset.
+     */
+    public static final class Candidate {
+        private final int rails;
+        private final int offset;
+        private final double score;
+        private final String plaintext;
+        
+        private Candidate(int rails, int offset, double score, String plaintext) {
+            this.rails = rails;
+            this.offset = offset;
+            this.score = score;
+            this.plaintext = plaintext;
+        }
+        
+        public int rails() {
+            return rails;
+        }
+        
+        public int offset() {
+            return offset;
+        }
+        
+        /**
+         * Returns the fitness of the decrypted sample.
+         */
+        public double score() {
+            return score;
+        }
+        
+        /**
+         * Returns the full decryption with this rail count and offset.
+         */
+        public String plaintext() {
+            return plaintext;
+        }
+        
+        @Override
+        public String toString() {
+            return "rails=" + rails + " offset=" + offset + " score=" + score;
+        }
+    }
+    
+    /**
+     * Tries every rail count in a range with no offset, scored as English.
+     * 
+     * @param ciphertext The ciphertext
+     * @param minRails The smallest rail count to try (at least 2)
+     * @param maxRails The largest rail count to try
+     * @param topK The number of results to return
+     * @return The best candidates, best first
+     */
+    public static List<Candidate> sweep(String ciphertext, int minRails, int maxRails, int topK) {
+        return sweep(ciphertext, minRails, maxRails, false, topK, new EnglishFitness());
+    }
+    
+    /**
+     * Tries every rail count in a range, and optionally every offset of each.
+     * 
+     * @param ciphertext The ciphertext
+     * @param minRails The smallest rail count to try (at least 2)
+     * @param maxRails The largest rail count to try
+     * @param offsets True to also try every offset (0 to 2 * (rails - 1) - 1) of each
+     *        rail count, which multiplies the work by the cycle length
+     * @param topK The number of results to return
+     * @param fitness The function that scores candidate plaintexts
+     * @return The best candidates, best first
+     */
+    public static List<Candidate> sweep(String ciphertext, int minRails, int maxRails, boolean offsets,
+                                        int topK, FitnessFunction fitness) {
+        if (minRails < 2) {
+            throw new IllegalArgumentException("Number of rails must be at least 2");
+        }
+        if (maxRails < minRails) {
+            throw new IllegalArgumentException("Maximum rails must not be less than minimum rails");
+        }
+        if (topK < 1) {
+            throw new IllegalArgumentException("Number of results must be at least 1");
+        }
+        
+        char[] cipher = ciphertext.toCharArray();
+        int railCounts = maxRails - minRails + 1;
+        
+        // The candidates of rail count r take scores[start[r - minRails]] onwards, one
+        // per offset, so the index order is rail count first, then offset
+        int[] start = new int[railCounts + 1];
+        for (int r = 0; r < railCounts; r++) {
+            long next = (long) start[r] + (offsets ? 2L * (minRails + r - 1) : 1);
+            if (next > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many candidates to score");
+            }
+            start[r + 1] = (int) next;
+        }
+        double[] scores = new double[start[railCounts]];
+        
+        // Worker w takes every workers-th rail count, which balances the work between
+        // them as the cost of a candidate grows with the rail count
+        int workers = Math.min(railCounts, Runtime.getRuntime().availableProcessors() * 4);
+        IntStream.range(0, workers).parallel()
+                .forEach(worker -> sweepShare(cipher, minRails, worker, workers, start, scores, fitness));
+        
+        // Only the best are decrypted; ties go to the smaller rail count, then the smaller offset
+        List<Integer> best = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -scores[i]).thenComparingInt(i -> i))
+                .limit(topK)
+                .collect(Collectors.toList());
+        
+        List<Candidate> candidates = new ArrayList<>(best.size());
+        for (int i : best) {
+            int r = Arrays.binarySearch(start, i);
+            if (r < 0) {
+                r = -r - 2;
+            }
+            int rails = minRails + r;
+            int offset = i - start[r];
+            char[] plain = new char[cipher.length];
+            RailFenceCipher.transpose(cipher, plain, rails, offset, false);
+            candidates.add(new Candidate(rails, offset, scores[i], new String(plain)));
+        }
+        return candidates;
+    }
+    
+    /**
+     * Scores rail counts minRails + first, minRails + first + step, ... into their slots
+     * of the score array.
+     */
+    private static void sweepShare(char[] cipher, int minRails, int first, int step, int[] start,
+                                   double[] scores, FitnessFunction fitness) {
+        int railCounts = start.length - 1;
+        int sampleLength = Math.min(SAMPLE_LENGTH, cipher.length);
+        char[] sample = new char[sampleLength];
+        long[] railStart = new long[minRails + railCounts - 1];
+        
+        for (int r = first; r < railCounts; r += step) {
+            int rails = minRails + r;
+            for (int i = start[r]; i < start[r + 1]; i++) {
+                RailFenceCipher.decryptPrefix(cipher, rails, i - start[r], sample, sampleLength, railStart);
+                scores[i] = fitness.score(sample, 0, sampleLength);
+            }
+        }
+    }
+    
+    public static void main(String[] args) {
+        String plaintext = "WEAREDISCOVEREDFLEEATONCEANDMEETUSATTHEOLDMILLBYTHERIVERATNOON"
+                + "THEPLANSHAVECHANGEDANDTHEENEMYKNOWSOURPOSITIONSOBRINGEVERYONE";
+        String ciphertext = RailFenceCipher.process(plaintext, 7, true);
+        
+        for (Candidate candidate : sweep(ciphertext, 2, 40, 3)) {
+            System.out.println(candidate + " " + candidate.plaintext());
+        }
+    }
+}
\ No newline at end of file
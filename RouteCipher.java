@@ -1,9 +1,54 @@
 /**
  * Route Cipher Implementation
  * This cipher arranges the plaintext in a grid and reads it off using a specific pattern.
+ * Each (rows, cols, pattern) is compiled into the permutation the route reads the grid
+ * in and its inverse, and compiled routes are kept in a small LRU cache. Encryption and
+ * decryption are then a single gather pass with no grid. Patterns come from a registry
+ * of RouteShape implementations; unknown pattern names read row by row.
+ * Text longer than one grid can be processed as a series of grids in block mode.
  */
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
 public class RouteCipher {
     
+    // Number of compiled routes kept
+    private static final int CACHE_SIZE = 64;
+    
+    // Below this many characters the blocks are transformed on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    
+    private static final Map<String, RouteShape> SHAPES = new ConcurrentHashMap<>();
+    
+    // Bumped under the CACHE lock whenever a shape is registered, so a route built from
+    // a replaced shape is not put back into the cache after it was cleared
+    private static long shapesVersion;
+    
+    // Compiled routes by "rows x cols pattern", least recently used first
+    private static final Map<String, Route> CACHE = new LinkedHashMap<String, Route>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Route> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    
+    static {
+        SHAPES.put("rows", RouteCipher::rows);
+        SHAPES.put("spiral", RouteCipher::spiral);
+        SHAPES.put("snake", RouteCipher::snake);
+        SHAPES.put("diagonal", RouteCipher::diagonal);
+        SHAPES.put("spiral-ccw", RouteCipher::counterClockwiseSpiral);
+        SHAPES.put("spiral-out", (rows, cols) -> reverse(spiral(rows, cols)));
+        SHAPES.put("spiral-ccw-out", (rows, cols) -> reverse(counterClockwiseSpiral(rows, cols)));
+        SHAPES.put("columns", RouteCipher::columns);
+        SHAPES.put("snake-columns", RouteCipher::columnSnake);
+    }
+    
     /**
      * Encrypts or decrypts text using the Route cipher.
      * 
@@ -15,224 +60,450 @@ public class RouteCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, int rows, int cols, String pattern, boolean encrypt) {
-        String cleanText = text.replaceAll("\\s", "");
-        
-        if (encrypt) {
-            return encrypt(cleanText, rows, cols, pattern);
-        } else {
-            return decrypt(cleanText, rows, cols, pattern);
+        return compile(rows, cols, pattern).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles grid dimensions and a reading pattern into a reusable key.
+     * 
+     * @param rows Number of rows in the grid
+     * @param cols Number of columns in the grid
+     * @param pattern The reading pattern (e.g., "spiral", "snake", "diagonal")
+     * @return The compiled key
+     */
+    public static CompiledKey compile(int rows, int cols, String pattern) {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("Grid must have at least one row and one column");
+        }
+        if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid is too large");
         }
+        return new CompiledKey(route(rows, cols, pattern.toLowerCase()));
     }
     
-    private static String encrypt(String text, int rows, int cols, String pattern) {
-        // Pad the text if needed
-        StringBuilder paddedText = new StringBuilder(text);
-        while (paddedText.length() < rows * cols) {
-            paddedText.append('X');
+    /**
+     * Registers a reading pattern, replacing any existing pattern with the same name.
+     * 
+     * @param name The pattern name (matched case-insensitively)
+     * @param shape The reading order
+     */
+    public static void registerShape(String name, RouteShape shape) {
+        synchronized (CACHE) {
+            SHAPES.put(name.toLowerCase(), shape);
+            shapesVersion++;
+            CACHE.clear();
+        }
+    }
+    
+    /**
+     * Returns the names of the registered patterns, in alphabetical order.
+     */
+    static Set<String> shapeNames() {
+        return new TreeSet<>(SHAPES.keySet());
+    }
+    
+    /**
+     * Returns the compiled route for a grid and pattern, from the cache if possible.
+     */
+    static Route route(int rows, int cols, String pattern) {
+        String cacheKey = rows + "x" + cols + " " + pattern;
+        RouteShape shape;
+        long version;
+        synchronized (CACHE) {
+            Route route = CACHE.get(cacheKey);
+            if (route != null) {
+                return route;
+            }
+            shape = SHAPES.getOrDefault(pattern, RouteCipher::rows);
+            version = shapesVersion;
         }
-        text = paddedText.toString();
         
-        // Fill the grid
-        char[][] grid = new char[rows][cols];
-        int index = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                grid[i][j] = text.charAt(index++);
-            }
-        }
-        
-        // Read off the grid according to the pattern
-        StringBuilder result = new StringBuilder();
-        
-        switch (pattern.toLowerCase()) {
-            case "spiral":
-                // Spiral pattern (clockwise from outside)
-                int top = 0, bottom = rows - 1;
-                int left = 0, right = cols - 1;
-                
-                while (top <= bottom && left <= right) {
-                    // Move right
-                    for (int i = left; i <= right; i++) {
-                        result.append(grid[top][i]);
-                    }
-                    top++;
-                    
-                    // Move down
-                    for (int i = top; i <= bottom; i++) {
-                        result.append(grid[i][right]);
-                    }
-                    right--;
-                    
-                    // Move left
-                    if (top <= bottom) {
-                        for (int i = right; i >= left; i--) {
-                            result.append(grid[bottom][i]);
-                        }
-                        bottom--;
-                    }
-                    
-                    // Move up
-                    if (left <= right) {
-                        for (int i = bottom; i >= top; i--) {
-                            result.append(grid[i][left]);
-                        }
-                        left++;
-                    }
+        // Build outside the lock; a race only builds the same route twice, and a route
+        // whose shape was replaced meanwhile is returned but not cached
+        Route route = new Route(rows, cols, shape.order(rows, cols));
+        synchronized (CACHE) {
+            if (version == shapesVersion) {
+                CACHE.put(cacheKey, route);
+            }
+        }
+        return route;
+    }
+    
+    /**
+     * A compiled route: the order the grid cells are read in, and its inverse.
+     * Immutable and shared between keys.
+     */
+    static final class Route {
+        final int rows;
+        final int cols;
+        // order[k] is the cell read k-th; position[cell] is the k that reads it
+        final int[] order;
+        final int[] position;
+        
+        private Route(int rows, int cols, int[] order) {
+            int size = rows * cols;
+            if (order.length != size) {
+                throw new IllegalArgumentException("Route must visit all " + size + " cells");
+            }
+            
+            int[] position = new int[size];
+            Arrays.fill(position, -1);
+            for (int k = 0; k < size; k++) {
+                int cell = order[k];
+                if (cell < 0 || cell >= size || position[cell] != -1) {
+                    throw new IllegalArgumentException("Route must visit every cell exactly once");
                 }
-                break;
-                
-            case "snake":
-                // Snake pattern (alternating left-to-right and right-to-left)
-                for (int i = 0; i < rows; i++) {
-                    if (i % 2 == 0) {
-                        // Left to right
-                        for (int j = 0; j < cols; j++) {
-                            result.append(grid[i][j]);
-                        }
-                    } else {
-                        // Right to left
-                        for (int j = cols - 1; j >= 0; j--) {
-                            result.append(grid[i][j]);
-                        }
-                    }
+                position[cell] = k;
+            }
+            
+            this.rows = rows;
+            this.cols = cols;
+            this.order = order.clone();
+            this.position = position;
+        }
+        
+        int size() {
+            return order.length;
+        }
+    }
+    
+    /**
+     * A compiled Route key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey implements Cipher {
+        private final Route route;
+        
+        private CompiledKey(Route route) {
+            this.route = route;
+        }
+        
+        @Override
+        public String encrypt(String text) {
+            return RouteCipher.encrypt(removeWhitespace(text), route);
+        }
+        
+        @Override
+        public String decrypt(String text) {
+            return RouteCipher.decrypt(removeWhitespace(text), route);
+        }
+        
+        /**
+         * Encrypts text of any length as a series of grids. Only the final grid is
+         * padded with 'X'.
+         * 
+         * @param text The text to encrypt (whitespace is removed)
+         * @return The ciphertext, a whole number of grids long
+         */
+        public String encryptBlocks(String text) {
+            return transformBlocks(removeWhitespace(text), route, true);
+        }
+        
+        /**
+         * Decrypts text produced by encryptBlocks. A final partial grid is decrypted
+         * like decrypt() does, with spaces in the cells the text does not reach.
+         * 
+         * @param text The text to decrypt (whitespace is removed)
+         * @return The plaintext, a whole number of grids long
+         */
+        public String decryptBlocks(String text) {
+            return transformBlocks(removeWhitespace(text), route, false);
+        }
+    }
+    
+    /**
+     * Encrypts or decrypts text of any length as a series of rows x cols grids, in
+     * parallel for large inputs. Unlike process(), text beyond the first grid is not
+     * dropped: only the final grid is padded.
+     * 
+     * @param text The text to encrypt/decrypt
+     * @param rows Number of rows in the grid
+     * @param cols Number of columns in the grid
+     * @param pattern The reading pattern (e.g., "spiral", "snake", "diagonal")
+     * @param encrypt True for encryption, false for decryption
+     * @return The encrypted/decrypted text
+     */
+    public static String processBlocks(String text, int rows, int cols, String pattern, boolean encrypt) {
+        CompiledKey key = compile(rows, cols, pattern);
+        return encrypt ? key.encryptBlocks(text) : key.decryptBlocks(text);
+    }
+    
+    /**
+     * Removes the characters the regex \s matches, without a regex.
+     */
+    private static char[] removeWhitespace(String text) {
+        char[] chars = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character != ' ' && (character < '\t' || character > '\r')) {
+                chars[length++] = character;
+            }
+        }
+        return length == chars.length ? chars : Arrays.copyOf(chars, length);
+    }
+    
+    /**
+     * Transforms every grid-sized block with the same route. Blocks are independent, so
+     * large inputs are split into block ranges that are transformed in parallel.
+     */
+    private static String transformBlocks(char[] text, Route route, boolean encrypt) {
+        int size = route.size();
+        int blocks = (text.length + size - 1) / size;
+        if ((long) blocks * size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Text is too long for this grid size");
+        }
+        char[] result = new char[blocks * size];
+        
+        int tasks = text.length < PARALLEL_THRESHOLD ? 1
+                : Math.min(blocks, Runtime.getRuntime().availableProcessors() * 4);
+        if (tasks == 1) {
+            transformRange(text, result, route, 0, blocks, encrypt);
+        } else {
+            int blocksPerTask = (blocks + tasks - 1) / tasks;
+            IntStream.range(0, tasks).parallel().forEach(task -> {
+                int from = task * blocksPerTask;
+                int to = Math.min(blocks, from + blocksPerTask);
+                if (from < to) {
+                    transformRange(text, result, route, from, to, encrypt);
                 }
-                break;
-                
-            case "diagonal":
-                // Diagonal pattern
-                for (int sum = 0; sum <= rows + cols - 2; sum++) {
-                    for (int i = 0; i <= sum; i++) {
-                        int j = sum - i;
-                        if (i < rows && j < cols) {
-                            result.append(grid[i][j]);
-                        }
-                    }
+            });
+        }
+        
+        return new String(result);
+    }
+    
+    private static void transformRange(char[] text, char[] result, Route route, int fromBlock, int toBlock,
+                                       boolean encrypt) {
+        int size = route.size();
+        int[] map = encrypt ? route.order : route.position;
+        char fill = encrypt ? 'X' : ' ';
+        
+        for (int block = fromBlock; block < toBlock; block++) {
+            int base = block * size;
+            if (base + size <= text.length) {
+                for (int i = 0; i < size; i++) {
+                    result[base + i] = text[base + map[i]];
                 }
-                break;
-                
-            default:
-                // Default to row-by-row
-                for (int i = 0; i < rows; i++) {
-                    for (int j = 0; j < cols; j++) {
-                        result.append(grid[i][j]);
-                    }
+            } else {
+                // The final, partial block
+                int length = text.length - base;
+                for (int i = 0; i < size; i++) {
+                    int source = map[i];
+                    result[base + i] = source < length ? text[base + source] : fill;
                 }
+            }
+        }
+    }
+    
+    /**
+     * Reads the grid along the route. The grid is the text row by row, padded with 'X'
+     * (text beyond the grid is dropped).
+     */
+    private static String encrypt(char[] text, Route route) {
+        int[] order = route.order;
+        char[] result = new char[order.length];
+        int length = text.length;
+        
+        for (int k = 0; k < order.length; k++) {
+            int cell = order[k];
+            result[k] = cell < length ? text[cell] : 'X';
         }
         
-        return result.toString();
+        return new String(result);
     }
     
-    private static String decrypt(String text, int rows, int cols, String pattern) {
-        // Create a grid to hold the decrypted text
-        char[][] grid = new char[rows][cols];
+    /**
+     * Writes the text into the grid along the route and reads it row by row. Cells the
+     * text does not reach are left as spaces.
+     */
+    private static String decrypt(char[] text, Route route) {
+        int[] position = route.position;
+        char[] result = new char[position.length];
+        int length = text.length;
         
-        // Initialize the grid with placeholder characters
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                grid[i][j] = ' ';
-            }
+        for (int cell = 0; cell < position.length; cell++) {
+            int k = position[cell];
+            result[cell] = k < length ? text[k] : ' ';
         }
         
-        // Fill the grid according to the pattern
+        return new String(result);
+    }
+    
+    /**
+     * Row by row, left to right.
+     */
+    private static int[] rows(int rows, int cols) {
+        int[] order = new int[rows * cols];
+        for (int cell = 0; cell < order.length; cell++) {
+            order[cell] = cell;
+        }
+        return order;
+    }
+    
+    /**
+     * Column by column, top to bottom.
+     */
+    private static int[] columns(int rows, int cols) {
+        int[] order = new int[rows * cols];
         int index = 0;
+        for (int j = 0; j < cols; j++) {
+            for (int i = 0; i < rows; i++) {
+                order[index++] = i * cols + j;
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Spiral pattern (clockwise from outside).
+     */
+    private static int[] spiral(int rows, int cols) {
+        int[] order = new int[rows * cols];
+        int index = 0;
+        int top = 0, bottom = rows - 1;
+        int left = 0, right = cols - 1;
         
-        switch (pattern.toLowerCase()) {
-            case "spiral":
-                // Spiral pattern (clockwise from outside)
-                int top = 0, bottom = rows - 1;
-                int left = 0, right = cols - 1;
-                
-                while (top <= bottom && left <= right && index < text.length()) {
-                    // Move right
-                    for (int i = left; i <= right && index < text.length(); i++) {
-                        grid[top][i] = text.charAt(index++);
-                    }
-                    top++;
-                    
-                    // Move down
-                    for (int i = top; i <= bottom && index < text.length(); i++) {
-                        grid[i][right] = text.charAt(index++);
-                    }
-                    right--;
-                    
-                    // Move left
-                    if (top <= bottom) {
-                        for (int i = right; i >= left && index < text.length(); i--) {
-                            grid[bottom][i] = text.charAt(index++);
-                        }
-                        bottom--;
-                    }
-                    
-                    // Move up
-                    if (left <= right) {
-                        for (int i = bottom; i >= top && index < text.length(); i--) {
-                            grid[i][left] = text.charAt(index++);
-                        }
-                        left++;
-                    }
+        while (top <= bottom && left <= right) {
+            // Move right
+            for (int i = left; i <= right; i++) {
+                order[index++] = top * cols + i;
+            }
+            top++;
+            
+            // Move down
+            for (int i = top; i <= bottom; i++) {
+                order[index++] = i * cols + right;
+            }
+            right--;
+            
+            // Move left
+            if (top <= bottom) {
+                for (int i = right; i >= left; i--) {
+                    order[index++] = bottom * cols + i;
                 }
-                break;
-                
-            case "snake":
-                // Snake pattern (alternating left-to-right and right-to-left)
-                for (int i = 0; i < rows && index < text.length(); i++) {
-                    if (i % 2 == 0) {
-                        // Left to right
-                        for (int j = 0; j < cols && index < text.length(); j++) {
-                            grid[i][j] = text.charAt(index++);
-                        }
-                    } else {
-                        // Right to left
-                        for (int j = cols - 1; j >= 0 && index < text.length(); j--) {
-                            grid[i][j] = text.charAt(index++);
-                        }
-                    }
+                bottom--;
+            }
+            
+            // Move up
+            if (left <= right) {
+                for (int i = bottom; i >= top; i--) {
+                    order[index++] = i * cols + left;
                 }
-                break;
-                
-            case "diagonal":
-                // Diagonal pattern
-                for (int sum = 0; sum <= rows + cols - 2 && index < text.length(); sum++) {
-                    for (int i = 0; i <= sum && index < text.length(); i++) {
-                        int j = sum - i;
-                        if (i < rows && j < cols) {
-                            grid[i][j] = text.charAt(index++);
-                        }
-                    }
+                left++;
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Spiral pattern (counter-clockwise from outside, starting down the left column).
+     */
+    private static int[] counterClockwiseSpiral(int rows, int cols) {
+        int[] order = new int[rows * cols];
+        int index = 0;
+        int top = 0, bottom = rows - 1;
+        int left = 0, right = cols - 1;
+        
+        while (top <= bottom && left <= right) {
+            // Move down
+            for (int i = top; i <= bottom; i++) {
+                order[index++] = i * cols + left;
+            }
+            left++;
+            
+            // Move right
+            for (int i = left; i <= right; i++) {
+                order[index++] = bottom * cols + i;
+            }
+            bottom--;
+            
+            // Move up
+            if (left <= right) {
+                for (int i = bottom; i >= top; i--) {
+                    order[index++] = i * cols + right;
                 }
-                break;
-                
-            default:
-                // Default to row-by-row
-                for (int i = 0; i < rows && index < text.length(); i++) {
-                    for (int j = 0; j < cols && index < text.length(); j++) {
-                        grid[i][j] = text.charAt(index++);
-                    }
+                right--;
+            }
+            
+            // Move left
+            if (top <= bottom) {
+                for (int i = right; i >= left; i--) {
+                    order[index++] = top * cols + i;
                 }
+                top++;
+            }
         }
-        
-        // Read the grid row by row to get the plaintext
-        StringBuilder result = new StringBuilder();
+        return order;
+    }
+    
+    /**
+     * Snake pattern (alternating left-to-right and right-to-left).
+     */
+    private static int[] snake(int rows, int cols) {
+        int[] order = new int[rows * cols];
+        int index = 0;
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                result.append(grid[i][j]);
+                order[index++] = i * cols + (i % 2 == 0 ? j : cols - 1 - j);
             }
         }
-        
-        return result.toString();
+        return order;
+    }
+    
+    /**
+     * Column snake pattern (alternating top-to-bottom and bottom-to-top).
+     */
+    private static int[] columnSnake(int rows, int cols) {
+        int[] order = new int[rows * cols];
+        int index = 0;
+        for (int j = 0; j < cols; j++) {
+            for (int i = 0; i < rows; i++) {
+                order[index++] = (j % 2 == 0 ? i : rows - 1 - i) * cols + j;
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Diagonal pattern (each anti-diagonal from the top row down).
+     */
+    private static int[] diagonal(int rows, int cols) {
+        int[] order = new int[rows * cols];
+        int index = 0;
+        for (int sum = 0; sum <= rows + cols - 2; sum++) {
+            // Only the rows where the column sum - i is inside the grid
+            for (int i = Math.max(0, sum - cols + 1); i <= Math.min(sum, rows - 1); i++) {
+                order[index++] = i * cols + (sum - i);
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Reverses a route, so an inward spiral becomes an outward one.
+     */
+    private static int[] reverse(int[] order) {
+        for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
     }
     
     public static void main(String[] args) {
         String plaintext = "WEAREDISCOVEREDRUNATONCE";
         int rows = 4;
         int cols = 6;
-        String pattern = "spiral";
         
-        String encrypted = process(plaintext, rows, cols, pattern, true);
-        String decrypted = process(encrypted, rows, cols, pattern, false);
-        
-        System.out.println("Plaintext: " + plaintext);
-        System.out.println("Encrypted: " + encrypted);
-        System.out.println("Decrypted: " + decrypted);
+        for (String pattern : new String[] {"spiral", "spiral-ccw", "spiral-out", "snake-columns"}) {
+            String encrypted = process(plaintext, rows, cols, pattern, true);
+            String decrypted = process(encrypted, rows, cols, pattern, false);
+            
+            System.out.println("Pattern: " + pattern);
+            System.out.println("Plaintext: " + plaintext);
+            System.out.println("Encrypted: " + encrypted);
+            System.out.println("Decrypted: " + decrypted);
+        }
     }
 }
\ No newline at end of file
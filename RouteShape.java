@@ -0,0 +1,19 @@
+/**
+ * Route Shape Interface
+ * A reading order over a rows x cols grid for the Route cipher. Shapes are registered
+ * by name with RouteCipher.registerShape; the order a shape produces is compiled once
+ * into a permutation and cached, so every shape gets the same single-pass transform.
+ */
+@FunctionalInterface
+public interface RouteShape {
+    
+    /**
+     * Lists the grid cells in reading order. Cell (row, col) is numbered row * cols + col.
+     * 
+     * @param rows Number of rows in the grid
+     * @param cols Number of columns in the grid
+     * @return Every cell number from 0 to rows * cols - 1, each exactly once, in the
+     *         order the route visits them
+     */
+    int[] order(int rows, int cols);
+}
\ No newline at end of file
@@ -0,0 +1,324 @@
+/**
+ * Running Key Cipher Implementation
+ * A Vigenere cipher whose key is a long reference text, such as a book, read from a
+ * given letter offset. Each letter of the message is shifted by the next letter of the
+ * key text; non-letters in either are skipped, and the case of the message is kept.
+ * 
+ * An opened key file is memory-mapped region by region and never decoded into a
+ * String. A letter index, built in one pass when the file is opened, records the byte
+ * position of every 65536th letter, so any letter offset is reached by a short scan from
+ * the nearest checkpoint. A one-shot process() call skips the index and reads the file
+ * only as far as the offset plus the letters of the message.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class RunningKeyCipher {
+    
+    // Size of each mapped region of the key file
+    private static final long REGION_SIZE = 64L * 1024 * 1024;
+    
+    // Number of letters between checkpoints in the letter index
+    private static final int CHECKPOINT_INTERVAL = 1 << 16;
+    
+    // Size of the buffer the key file is scanned through when it is indexed
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    /**
+     * Encrypts or decrypts text using a key file. The file is read from the start only
+     * as far as the message needs, and nothing is kept; to process several messages
+     * with the same key file, open() it once and reuse the KeyText.
+     * 
+     * @param text The text to encrypt/decrypt
+     * @param keyFile The key text (ASCII or UTF-8; only the letters A-Z and a-z are used)
+     * @param offset The number of key letters to skip
+     * @param encrypt True for encryption, false for decryption
+     * @return The encrypted/decrypted text
+     * @throws IOException If the key file cannot be read
+     */
+    public static String process(String text, Path keyFile, long offset, boolean encrypt) throws IOException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        
+        char[] chars = text.toCharArray();
+        int needed = 0;
+        for (char character : chars) {
+            if (isLetter(character)) {
+                needed++;
+            }
+        }
+        
+        try (FileChannel channel = FileChannel.open(keyFile, StandardOpenOption.READ)) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            long skip = offset;
+            long seen = 0;
+            int i = nextLetter(chars, 0);
+            
+            // Scan the key letters up to the offset, then shift one message letter per key letter
+            while (skip > 0 || i < chars.length) {
+                buffer.clear();
+                int count = channel.read(buffer);
+                if (count < 0) {
+                    if (skip > 0) {
+                        throw new IllegalArgumentException("Offset must be between 0 and " + seen);
+                    }
+                    throw new IllegalArgumentException("The key text has only " + (seen - offset)
+                            + " letters after offset " + offset + ", but the text needs " + needed);
+                }
+                
+                for (int k = 0; k < count && (skip > 0 || i < chars.length); k++) {
+                    if (!isLetter(chunk[k])) {
+                        continue;
+                    }
+                    seen++;
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        chars[i] = shift(chars[i], chunk[k], encrypt);
+                        i = nextLetter(chars, i + 1);
+                    }
+                }
+            }
+        }
+        return new String(chars);
+    }
+    
+    /**
+     * Maps and indexes a key file. The result can be used for any number of messages.
+     * 
+     * @param keyFile The key text (ASCII or UTF-8; only the letters A-Z and a-z are used)
+     * @return The key text
+     * @throws IOException If the key file cannot be read
+     */
+    public static KeyText open(Path keyFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(keyFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] regions = new ByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+            for (int i = 0; i < regions.length; i++) {
+                long position = i * REGION_SIZE;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, size - position));
+            }
+            return new KeyText(regions);
+        }
+    }
+    
+    /**
+     * A mapped and indexed key text. Immutable and safe to share between threads.
+     */
+    public static final class KeyText {
+        private final ByteBuffer[] regions;
+        // Byte position of letter i * CHECKPOINT_INTERVAL
+        private final long[] checkpoints;
+        private final long letters;
+        
+        private KeyText(ByteBuffer[] regions) {
+            this.regions = regions;
+            
+            long[] checkpoints = new long[16];
+            int checkpointCount = 0;
+            long letters = 0;
+            byte[] chunk = new byte[CHUNK_SIZE];
+            
+            for (int r = 0; r < regions.length; r++) {
+                ByteBuffer region = regions[r].duplicate();
+                long regionStart = r * REGION_SIZE;
+                while (region.hasRemaining()) {
+                    int chunkStart = region.position();
+                    int count = Math.min(chunk.length, region.remaining());
+                    region.get(chunk, 0, count);
+                    
+                    for (int i = 0; i < count; i++) {
+                        if (isLetter(chunk[i])) {
+                            if (letters % CHECKPOINT_INTERVAL == 0) {
+                                if (checkpointCount == checkpoints.length) {
+                                    checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                                }
+                                checkpoints[checkpointCount++] = regionStart + chunkStart + i;
+                            }
+                            letters++;
+                        }
+                    }
+                }
+            }
+            
+            this.checkpoints = Arrays.copyOf(checkpoints, checkpointCount);
+            this.letters = letters;
+        }
+        
+        /**
+         * Returns the number of letters in the key text.
+         * 
+         * @return The number of letters
+         */
+        public long letterCount() {
+            return letters;
+        }
+        
+        /**
+         * Encrypts or decrypts text starting at a key letter offset.
+         * 
+         * @param text The text to encrypt/decrypt
+         * @param offset The number of key letters to skip
+         * @param encrypt True for encryption, false for decryption
+         * @return The encrypted/decrypted text
+         */
+        public String process(String text, long offset, boolean encrypt) {
+            char[] chars = text.toCharArray();
+            transform(chars, 0, chars.length, offset, encrypt);
+            return new String(chars);
+        }
+        
+        /**
+         * Returns a cipher that uses this key text from a fixed offset.
+         * 
+         * @param offset The number of key letters to skip
+         * @return The cipher
+         */
+        public Cipher at(long offset) {
+            checkOffset(offset);
+            return new Cipher() {
+                @Override
+                public String encrypt(String text) {
+                    return KeyText.this.process(text, offset, true);
+                }
+                
+                @Override
+                public String decrypt(String text) {
+                    return KeyText.this.process(text, offset, false);
+                }
+            };
+        }
+        
+        /**
+         * Transforms a range of characters in place. Only ASCII letters are changed and
+         * only letters use up key letters, so a long message can be processed in chunks
+         * by passing each call's result as the next call's offset.
+         * 
+         * @param buf The characters to transform
+         * @param off The first index to transform
+         * @param len The number of characters to transform
+         * @param offset The key letter offset of the first letter in the range
+         * @param encrypt True for encryption, false for decryption
+         * @return The key letter offset of the first letter after the range
+         * @throws IllegalArgumentException If the key text runs out (the buffer is then unchanged)
+         */
+        public long transform(char[] buf, int off, int len, long offset, boolean encrypt) {
+            checkOffset(offset);
+            int needed = 0;
+            for (int i = off; i < off + len; i++) {
+                if (isLetter(buf[i])) {
+                    needed++;
+                }
+            }
+            if (needed > letters - offset) {
+                throw new IllegalArgumentException("The key text has only " + (letters - offset)
+                        + " letters after offset " + offset + ", but the text needs " + needed);
+            }
+            if (needed == 0) {
+                return offset;
+            }
+            
+            // Walk the key text from the offset, one mapped region at a time
+            long position = positionOf(offset);
+            int r = (int) (position / REGION_SIZE);
+            ByteBuffer region = regions[r];
+            int index = (int) (position % REGION_SIZE);
+            
+            for (int i = off; i < off + len; i++) {
+                char character = buf[i];
+                if (!isLetter(character)) {
+                    continue;
+                }
+                
+                // Next key letter, skipping everything else
+                byte keyByte;
+                do {
+                    if (index == region.limit()) {
+                        region = regions[++r];
+                        index = 0;
+                    }
+                    keyByte = region.get(index++);
+                } while (!isLetter(keyByte));
+                
+                buf[i] = shift(character, keyByte, encrypt);
+            }
+            
+            return offset + needed;
+        }
+        
+        /**
+         * Returns the byte position to scan from for the letter at an offset: the
+         * nearest checkpoint, moved past the letters between it and the offset.
+         */
+        private long positionOf(long offset) {
+            long position = checkpoints[(int) (offset / CHECKPOINT_INTERVAL)];
+            long skip = offset % CHECKPOINT_INTERVAL;
+            
+            while (skip > 0) {
+                if (isLetter(regions[(int) (position / REGION_SIZE)].get((int) (position % REGION_SIZE)))) {
+                    skip--;
+                }
+                position++;
+            }
+            return position;
+        }
+        
+        private void checkOffset(long offset) {
+            if (offset < 0 || offset > letters) {
+                throw new IllegalArgumentException("Offset must be between 0 and " + letters);
+            }
+        }
+    }
+    
+    private static boolean isLetter(int character) {
+        int lower = character | 0x20;
+        return lower >= 'a' && lower <= 'z';
+    }
+    
+    /**
+     * Shifts a message letter by a key letter, keeping its case.
+     */
+    private static char shift(char character, int keyLetter, boolean encrypt) {
+        char base = character >= 'a' ? 'a' : 'A';
+        int shift = (keyLetter | 0x20) - 'a';
+        if (!encrypt) {
+            shift = 26 - shift;
+        }
+        return (char) ((character - base + shift) % 26 + base);
+    }
+    
+    /**
+     * Returns the index of the first letter at or after from, or chars.length if there is none.
+     */
+    private static int nextLetter(char[] chars, int from) {
+        while (from < chars.length && !isLetter(chars[from])) {
+            from++;
+        }
+        return from;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path keyFile = Files.createTempFile("running-key", ".txt");
+        try {
+            Files.writeString(keyFile, "It was the best of times, it was the worst of times, it was the age of wisdom...");
+            
+            String plaintext = "Attack at dawn";
+            KeyText key = open(keyFile);
+            String encrypted = key.process(plaintext, 5, true);
+            String decrypted = key.process(encrypted, 5, false);
+            
+            System.out.println("Plaintext: " + plaintext);
+            System.out.println("Encrypted: " + encrypted);
+            System.out.println("Decrypted: " + decrypted);
+        } finally {
+            Files.delete(keyFile);
+        }
+    }
+}
\ No newline at end of file
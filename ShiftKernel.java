@@ -0,0 +1,87 @@
+/**
+ * Shift Kernel
+ * The byte-level inner loop shared by the shift ciphers (Caesar, Vigenere, Variant
+ * Beaufort, Gronsfeld).
+ * When the JDK's incubating Vector API module is present (run with
+ * --add-modules jdk.incubator.vector) long runs are handed to VectorShiftKernel,
+ * otherwise the scalar loop below is used.
+ */
+final class ShiftKernel {
+    
+    // Whether the Vector API implementation can be used in this JVM
+    static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !Boolean.getBoolean("cipher.scalar");
+    
+    // Widest vector the Vector API supports, in bytes
+    static final int MAX_LANES = 64;
+    
+    // Shorter ranges are not worth the vector setup
+    private static final int VECTOR_THRESHOLD = 64;
+    
+    private ShiftKernel() {
+    }
+    
+    /**
+     * Expands a key into a key stream: the shift of every key position, already
+     * inverted for decryption, followed by enough repeats of the key that a full
+     * vector of shifts can be loaded starting from any key position.
+     * 
+     * @param shifts The shift (0-25) of each key position
+     * @param encrypt True for encryption, false for decryption
+     * @return The key stream
+     */
+    static byte[] keyStream(int[] shifts, boolean encrypt) {
+        byte[] stream = new byte[shifts.length + MAX_LANES];
+        for (int i = 0; i < stream.length; i++) {
+            int shift = shifts[i % shifts.length];
+            stream[i] = (byte) (encrypt ? shift : (26 - shift) % 26);
+        }
+        return stream;
+    }
+    
+    /**
+     * Shifts the ASCII letters of a byte range in place.
+     * 
+     * @param buf The bytes to transform
+     * @param off The first index to transform
+     * @param len The number of bytes to transform
+     * @param keyStream The key stream from keyStream()
+     * @param period The key length
+     * @param keyIndex The key position of the first letter in the range
+     * @return The key position of the first letter after the range
+     */
+    static int shift(byte[] buf, int off, int len, byte[] keyStream, int period, int keyIndex) {
+        if (VECTORIZED && len >= VECTOR_THRESHOLD) {
+            return VectorShiftKernel.shift(buf, off, len, keyStream, period, keyIndex);
+        }
+        return scalarShift(buf, off, len, keyStream, period, keyIndex);
+    }
+    
+    /**
+     * Scalar implementation of shift(), also used by the vector kernel for ranges it
+     * cannot handle a full vector at a time.
+     */
+    static int scalarShift(byte[] buf, int off, int len, byte[] keyStream, int period, int keyIndex) {
+        int end = off + len;
+        
+        for (int i = off; i < end; i++) {
+            byte character = buf[i];
+            char base;
+            if (character >= 'A' && character <= 'Z') {
+                base = 'A';
+            } else if (character >= 'a' && character <= 'z') {
+                base = 'a';
+            } else {
+                continue;
+            }
+            
+            buf[i] = (byte) ((character - base + keyStream[keyIndex]) % 26 + base);
+            
+            if (++keyIndex == period) {
+                keyIndex = 0;
+            }
+        }
+        
+        return keyIndex;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+/**
+ * Substitution Cipher Interface
+ * A compiled key for the letter-by-letter substitution ciphers (Caesar, Atbash, Affine,
+ * Vigenere, Beaufort, Gronsfeld). Text is transformed in place, one buffer at a time,
+ * with the position in the keyword carried explicitly between calls so that a message
+ * can be split into chunks at arbitrary points.
+ */
+public interface SubstitutionCipher extends Cipher {
+    
+    /**
+     * Returns the number of letters after which the key repeats (1 for monoalphabetic ciphers).
+     * 
+     * @return The key period
+     */
+    int period();
+    
+    /**
+     * Transforms a range of characters in place. Only ASCII letters are changed and only
+     * letters advance the key; everything else is left as it is.
+     * 
+     * @param buf The characters to transform
+     * @param off The first index to transform
+     * @param len The number of characters to transform
+     * @param keyIndex The key position of the first letter in the range (0 to period - 1)
+     * @param encrypt True for encryption, false for decryption
+     * @return The key position of the first letter after the range
+     */
+    int transform(char[] buf, int off, int len, int keyIndex, boolean encrypt);
+    
+    /**
+     * Transforms a range of bytes in place. Only ASCII letters are changed, so bytes of
+     * multi-byte UTF-8 sequences pass through untouched.
+     * 
+     * @param buf The bytes to transform
+     * @param off The first index to transform
+     * @param len The number of bytes to transform
+     * @param keyIndex The key position of the first letter in the range (0 to period - 1)
+     * @param encrypt True for encryption, false for decryption
+     * @return The key position of the first letter after the range
+     */
+    int transform(byte[] buf, int off, int len, int keyIndex, boolean encrypt);
+    
+    @Override
+    default String encrypt(String text) {
+        char[] chars = text.toCharArray();
+        transform(chars, 0, chars.length, 0, true);
+        return new String(chars);
+    }
+    
+    @Override
+    default String decrypt(String text) {
+        char[] chars = text.toCharArray();
+        transform(chars, 0, chars.length, 0, false);
+        return new String(chars);
+    }
+}
\ No newline at end of file
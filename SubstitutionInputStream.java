@@ -0,0 +1,77 @@
+/**
+ * Substitution Input Stream
+ * An InputStream that encrypts or decrypts the ASCII letters of another stream as they
+ * are read. Bytes outside the ASCII letter range, including multi-byte UTF-8 sequences,
+ * pass through unchanged.
+ */
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class SubstitutionInputStream extends FilterInputStream {
+    private final SubstitutionCipher key;
+    private final boolean encrypt;
+    private final byte[] single = new byte[1];
+    private int keyIndex;
+    
+    /**
+     * Creates a stream that transforms the bytes read from the given stream.
+     * 
+     * @param in The stream to read from
+     * @param key The compiled key
+     * @param encrypt True for encryption, false for decryption
+     */
+    public SubstitutionInputStream(InputStream in, SubstitutionCipher key, boolean encrypt) {
+        super(in);
+        this.key = key;
+        this.encrypt = encrypt;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int count = read(single, 0, 1);
+        return count == -1 ? -1 : single[0] & 0xFF;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = in.read(b, off, len);
+        if (count > 0) {
+            keyIndex = key.transform(b, off, count, keyIndex, encrypt);
+        }
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        
+        // Skipped letters still have to advance the key
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (count == -1) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+    
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+    
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+    
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+/**
+ * Substitution Output Stream
+ * An OutputStream that encrypts or decrypts ASCII letters before passing them on to
+ * another stream. Bytes outside the ASCII letter range, including multi-byte UTF-8
+ * sequences, pass through unchanged.
+ */
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class SubstitutionOutputStream extends FilterOutputStream {
+    private final SubstitutionCipher key;
+    private final boolean encrypt;
+    private final byte[] buffer = new byte[8192];
+    private int keyIndex;
+    
+    /**
+     * Creates a stream that transforms bytes before writing them to the given stream.
+     * 
+     * @param out The stream to write to
+     * @param key The compiled key
+     * @param encrypt True for encryption, false for decryption
+     */
+    public SubstitutionOutputStream(OutputStream out, SubstitutionCipher key, boolean encrypt) {
+        super(out);
+        this.key = key;
+        this.encrypt = encrypt;
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        buffer[0] = (byte) b;
+        flushBuffer(1);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // Copy first so the caller's array is never modified
+        while (len > 0) {
+            int count = Math.min(len, buffer.length);
+            System.arraycopy(b, off, buffer, 0, count);
+            flushBuffer(count);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    private void flushBuffer(int count) throws IOException {
+        keyIndex = key.transform(buffer, 0, count, keyIndex, encrypt);
+        out.write(buffer, 0, count);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+/**
+ * Substitution Reader
+ * A Reader that encrypts or decrypts the characters of another Reader as they are read,
+ * so a message of any length can be processed in constant memory.
+ */
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+public class SubstitutionReader extends FilterReader {
+    private final SubstitutionCipher key;
+    private final boolean encrypt;
+    private final char[] single = new char[1];
+    private int keyIndex;
+    
+    /**
+     * Creates a reader that transforms the characters read from the given reader.
+     * 
+     * @param in The reader to read from
+     * @param key The compiled key
+     * @param encrypt True for encryption, false for decryption
+     */
+    public SubstitutionReader(Reader in, SubstitutionCipher key, boolean encrypt) {
+        super(in);
+        this.key = key;
+        this.encrypt = encrypt;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int count = read(single, 0, 1);
+        return count == -1 ? -1 : single[0];
+    }
+    
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int count = in.read(cbuf, off, len);
+        if (count > 0) {
+            keyIndex = key.transform(cbuf, off, count, keyIndex, encrypt);
+        }
+        return count;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        if (n < 0) {
+            throw new IllegalArgumentException("Skip count must not be negative");
+        }
+        if (n == 0) {
+            return 0;
+        }
+        
+        // Skipped letters still have to advance the key
+        char[] buffer = new char[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (count == -1) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+    
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+    
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+    
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+}
\ No newline at end of file
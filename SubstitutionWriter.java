@@ -0,0 +1,62 @@
+/**
+ * Substitution Writer
+ * A Writer that encrypts or decrypts characters before passing them on to another Writer,
+ * so a message of any length can be processed in constant memory.
+ */
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+public class SubstitutionWriter extends FilterWriter {
+    private final SubstitutionCipher key;
+    private final boolean encrypt;
+    private final char[] buffer = new char[8192];
+    private int keyIndex;
+    
+    /**
+     * Creates a writer that transforms characters before writing them to the given writer.
+     * 
+     * @param out The writer to write to
+     * @param key The compiled key
+     * @param encrypt True for encryption, false for decryption
+     */
+    public SubstitutionWriter(Writer out, SubstitutionCipher key, boolean encrypt) {
+        super(out);
+        this.key = key;
+        this.encrypt = encrypt;
+    }
+    
+    @Override
+    public void write(int c) throws IOException {
+        buffer[0] = (char) c;
+        flushBuffer(1);
+    }
+    
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        // Copy first so the caller's array is never modified
+        while (len > 0) {
+            int count = Math.min(len, buffer.length);
+            System.arraycopy(cbuf, off, buffer, 0, count);
+            flushBuffer(count);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        while (len > 0) {
+            int count = Math.min(len, buffer.length);
+            str.getChars(off, off + count, buffer, 0);
+            flushBuffer(count);
+            off += count;
+            len -= count;
+        }
+    }
+    
+    private void flushBuffer(int count) throws IOException {
+        keyIndex = key.transform(buffer, 0, count, keyIndex, encrypt);
+        out.write(buffer, 0, count);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,286 @@
+/**
+ * Transposition File Cipher
+ * Encrypts or decrypts files of any size with a Myszkowski key, or a columnar
+ * transposition key, which is the special case of a keyword with no repeated letters.
+ * 
+ * Row r of the grid puts the bytes of key group g at a known place in the ciphertext:
+ * group g's region starts after the regions of the groups before it, and each row adds
+ * that group's column count to it. Encryption therefore reads the file once,
+ * sequentially, appending each byte to a buffer for its group, and writes every full
+ * buffer to the next place in that group's region. Decryption reads each group's region
+ * sequentially through its own buffer and writes the plaintext in order. Memory use is
+ * bounded by the buffer size, however large the file.
+ * 
+ * Files are treated as raw bytes: whitespace is not removed. Encryption pads the final
+ * row with 'X' like MyszkowskiCipher; decryption accepts a partial final row.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TranspositionFileCipher {
+    
+    // Default total size of the buffers
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024 * 1024;
+    
+    /**
+     * Encrypts a file into another file with the default buffer size.
+     * 
+     * @param source The file to read
+     * @param target The file to write (created or truncated)
+     * @param key The compiled key
+     * @throws IOException If either file cannot be read or written
+     */
+    public static void encrypt(Path source, Path target, MyszkowskiCipher.CompiledKey key) throws IOException {
+        encrypt(source, target, key, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Encrypts a file into another file.
+     * 
+     * @param source The file to read
+     * @param target The file to write (created or truncated)
+     * @param key The compiled key
+     * @param bufferSize The total size of the buffers in bytes (memory use is about this
+     *        plus one byte per column)
+     * @throws IOException If either file cannot be read or written
+     */
+    public static void encrypt(Path source, Path target, MyszkowskiCipher.CompiledKey key, int bufferSize)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = open(target)) {
+            Plan plan = new Plan(key);
+            long length = in.size();
+            long rows = (length + plan.keyLength - 1) / plan.keyLength;
+            
+            // Group g's region starts after every earlier group's columns, for every row
+            long[] next = new long[plan.groups];
+            for (int g = 0; g < plan.groups; g++) {
+                next[g] = rows * plan.groupStart[g];
+            }
+            
+            byte[] chunk = new byte[sequentialBufferSize(bufferSize)];
+            byte[][] groupBuffers = plan.groupBuffers(bufferSize - chunk.length);
+            int[] filled = new int[plan.groups];
+            int[] groupOf = plan.groupOf;
+            int column = 0;
+            
+            ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+            long remaining = length;
+            while (remaining > 0) {
+                chunkBuffer.clear();
+                int count = in.read(chunkBuffer);
+                if (count < 0) {
+                    throw new IOException("File shrank while it was being read");
+                }
+                remaining -= count;
+                
+                for (int i = 0; i < count; i++) {
+                    int g = groupOf[column];
+                    byte[] buffer = groupBuffers[g];
+                    buffer[filled[g]++] = chunk[i];
+                    if (filled[g] == buffer.length) {
+                        next[g] += write(out, buffer, filled[g], next[g]);
+                        filled[g] = 0;
+                    }
+                    if (++column == plan.keyLength) {
+                        column = 0;
+                    }
+                }
+            }
+            
+            // Pad the final row
+            while (column != 0) {
+                int g = groupOf[column];
+                groupBuffers[g][filled[g]++] = 'X';
+                if (filled[g] == groupBuffers[g].length) {
+                    next[g] += write(out, groupBuffers[g], filled[g], next[g]);
+                    filled[g] = 0;
+                }
+                if (++column == plan.keyLength) {
+                    column = 0;
+                }
+            }
+            
+            for (int g = 0; g < plan.groups; g++) {
+                write(out, groupBuffers[g], filled[g], next[g]);
+            }
+        }
+    }
+    
+    /**
+     * Decrypts a file into another file with the default buffer size.
+     * 
+     * @param source The file to read
+     * @param target The file to write (created or truncated)
+     * @param key The compiled key
+     * @throws IOException If either file cannot be read or written
+     */
+    public static void decrypt(Path source, Path target, MyszkowskiCipher.CompiledKey key) throws IOException {
+        decrypt(source, target, key, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Decrypts a file into another file.
+     * 
+     * @param source The file to read
+     * @param target The file to write (created or truncated)
+     * @param key The compiled key
+     * @param bufferSize The total size of the buffers in bytes (memory use is about this
+     *        plus one byte per column)
+     * @throws IOException If either file cannot be read or written
+     */
+    public static void decrypt(Path source, Path target, MyszkowskiCipher.CompiledKey key, int bufferSize)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = open(target)) {
+            Plan plan = new Plan(key);
+            long length = in.size();
+            if (length == 0) {
+                return;
+            }
+            long rows = (length + plan.keyLength - 1) / plan.keyLength;
+            int lastRowLength = (int) (length - (rows - 1) * plan.keyLength);
+            
+            // Each group has its columns in every full row, plus those the partial row reaches
+            long[] next = new long[plan.groups];
+            long[] end = new long[plan.groups];
+            long start = 0;
+            for (int g = 0; g < plan.groups; g++) {
+                long groupLength = (rows - 1) * (plan.groupStart[g + 1] - plan.groupStart[g]);
+                for (int i = plan.groupStart[g]; i < plan.groupStart[g + 1]; i++) {
+                    if (plan.columnOrder[i] < lastRowLength) {
+                        groupLength++;
+                    }
+                }
+                next[g] = start;
+                start += groupLength;
+                end[g] = start;
+            }
+            
+            byte[] chunk = new byte[sequentialBufferSize(bufferSize)];
+            byte[][] groupBuffers = plan.groupBuffers(bufferSize - chunk.length);
+            int[] filled = new int[plan.groups];
+            int[] taken = new int[plan.groups];
+            int[] groupOf = plan.groupOf;
+            int column = 0;
+            int count = 0;
+            
+            for (long position = 0; position < length; position++) {
+                int g = groupOf[column];
+                if (taken[g] == filled[g]) {
+                    // Refill this group's buffer from the next part of its region
+                    int size = (int) Math.min(groupBuffers[g].length, end[g] - next[g]);
+                    read(in, groupBuffers[g], size, next[g]);
+                    next[g] += size;
+                    filled[g] = size;
+                    taken[g] = 0;
+                }
+                
+                chunk[count++] = groupBuffers[g][taken[g]++];
+                if (count == chunk.length) {
+                    write(out, chunk, count, -1);
+                    count = 0;
+                }
+                if (++column == plan.keyLength) {
+                    column = 0;
+                }
+            }
+            write(out, chunk, count, -1);
+        }
+    }
+    
+    /**
+     * The key plan, with the group of every column.
+     */
+    private static final class Plan {
+        final int keyLength;
+        final int groups;
+        final int[] columnOrder;
+        final int[] groupStart;
+        final int[] groupOf;
+        
+        Plan(MyszkowskiCipher.CompiledKey key) {
+            this.keyLength = key.keyLength();
+            this.columnOrder = key.columnOrder();
+            this.groupStart = key.groupStart();
+            this.groups = groupStart.length - 1;
+            this.groupOf = new int[keyLength];
+            for (int g = 0; g < groups; g++) {
+                for (int i = groupStart[g]; i < groupStart[g + 1]; i++) {
+                    groupOf[columnOrder[i]] = g;
+                }
+            }
+        }
+        
+        /**
+         * Shares the space between the groups in proportion to their column counts.
+         */
+        byte[][] groupBuffers(int space) {
+            byte[][] buffers = new byte[groups][];
+            for (int g = 0; g < groups; g++) {
+                int columns = groupStart[g + 1] - groupStart[g];
+                buffers[g] = new byte[(int) Math.max(columns, (long) space * columns / keyLength)];
+            }
+            return buffers;
+        }
+    }
+    
+    /**
+     * Returns the size of the buffer for the sequential side (the input when encrypting,
+     * the output when decrypting): a quarter of the space, the rest going to the groups.
+     */
+    private static int sequentialBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        return Math.max(1, bufferSize / 4);
+    }
+    
+    private static FileChannel open(Path target) throws IOException {
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    /**
+     * Writes bytes at a position, or at the channel's current position if it is negative.
+     * 
+     * @return The number of bytes written
+     */
+    private static int write(FileChannel channel, byte[] buffer, int count, long position) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+        while (bytes.hasRemaining()) {
+            if (position < 0) {
+                channel.write(bytes);
+            } else {
+                channel.write(bytes, position + bytes.position());
+            }
+        }
+        return count;
+    }
+    
+    private static void read(FileChannel channel, byte[] buffer, int count, long position) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("Usage: TranspositionFileCipher <encrypt|decrypt> <keyword> <source> <target>");
+            return;
+        }
+        
+        MyszkowskiCipher.CompiledKey key = MyszkowskiCipher.compile(args[1]);
+        if (args[0].equalsIgnoreCase("encrypt")) {
+            encrypt(Path.of(args[2]), Path.of(args[3]), key);
+        } else {
+            decrypt(Path.of(args[2]), Path.of(args[3]), key);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,465 @@
+/**
+ * Transposition Solver
+ * Recovers transposition keys from ciphertext alone by scoring candidate decryptions
+ * with an n-gram fitness function.
+ * 
+ * Columnar and Myszkowski keys are searched by simulated annealing: a key is changed a
+ * little at a time (two columns swapped, a run of columns reversed or moved, or for
+ * Myszkowski one column given another column's number), and the change is kept if it
+ * scores better, or sometimes when it scores worse while the temperature is still high,
+ * so the search can climb out of local maxima. Each restart starts from a random key
+ * and runs on its own thread with its own buffers and random numbers, so restarts scale
+ * with cores and the result for a given seed does not depend on the thread count.
+ * 
+ * Route keys have far fewer candidates (the grid shapes whose size is the ciphertext
+ * length, times the registered patterns), so they are all tried.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class TranspositionSolver {
+    
+    // Defaults for the annealing search
+    private static final int DEFAULT_RESTARTS = 16;
+    private static final int DEFAULT_ITERATIONS = 20000;
+    
+    // Starting temperature, in score per ciphertext letter; it falls linearly to zero
+    private static final double START_TEMPERATURE = 0.05;
+    
+    /**
+     * A recovered columnar or Myszkowski key.
+     */
+    public static final class KeyCandidate {
+        private final int[] keyNumbers;
+        private final double score;
+        private final String plaintext;
+        
+        private KeyCandidate(int[] keyNumbers, double score, String plaintext) {
+            this.keyNumbers = keyNumbers;
+            this.score = score;
+            this.plaintext = plaintext;
+        }
+        
+        /**
+         * Returns the key number of each column, renumbered from 1. Columns with equal
+         * numbers are read together.
+         */
+        public int[] keyNumbers() {
+            return keyNumbers.clone();
+        }
+        
+        /**
+         * Returns a keyword with these key numbers (A for 1, B for 2 and so on).
+         * 
+         * @throws IllegalStateException If the key has more than 26 distinct numbers
+         */
+        public String keyword() {
+            char[] keyword = new char[keyNumbers.length];
+            for (int i = 0; i < keyNumbers.length; i++) {
+                if (keyNumbers[i] > 26) {
+                    throw new IllegalStateException("A key with more than 26 distinct numbers has no keyword");
+                }
+                keyword[i] = (char) ('A' + keyNumbers[i] - 1);
+            }
+            return new String(keyword);
+        }
+        
+        /**
+         * Returns the fitness of the decryption.
+         */
+        public double score() {
+            return score;
+        }
+        
+        /**
+         * Returns the decryption with this key.
+         */
+        public String plaintext() {
+            return plaintext;
+        }
+        
+        @Override
+        public String toString() {
+            return "key=" + Arrays.toString(keyNumbers) + " score=" + score;
+        }
+    }
+    
+    /**
+     * A recovered route key.
+     */
+    public static final class RouteCandidate {
+        private final int rows;
+        private final int cols;
+        private final String pattern;
+        private final double score;
+        private final String plaintext;
+        
+        private RouteCandidate(int rows, int cols, String pattern, double score, String plaintext) {
+            this.rows = rows;
+            this.cols = cols;
+            this.pattern = pattern;
+            this.score = score;
+            this.plaintext = plaintext;
+        }
+        
+        /**
+         * Returns the number of rows in the grid.
+         */
+        public int rows() {
+            return rows;
+        }
+        
+        /**
+         * Returns the number of columns in the grid.
+         */
+        public int cols() {
+            return cols;
+        }
+        
+        /**
+         * Returns the name of the reading pattern.
+         */
+        public String pattern() {
+            return pattern;
+        }
+        
+        /**
+         * Returns the fitness of the decryption.
+         */
+        public double score() {
+            return score;
+        }
+        
+        /**
+         * Returns the decryption with this grid and pattern.
+         */
+        public String plaintext() {
+            return plaintext;
+        }
+        
+        @Override
+        public String toString() {
+            return rows + "x" + cols + " " + pattern + " score=" + score;
+        }
+    }
+    
+    /**
+     * Recovers a columnar transposition key (a Myszkowski key with no repeated letters)
+     * with the default search settings and quadgram fitness.
+     * 
+     * @param ciphertext The ciphertext
+     * @param keyLength The number of columns
+     * @return The best key found
+     */
+    public static KeyCandidate solveColumnar(String ciphertext, int keyLength) {
+        return solve(ciphertext, keyLength, false, DEFAULT_RESTARTS, DEFAULT_ITERATIONS,
+                QuadgramScorer.english(), 0);
+    }
+    
+    /**
+     * Recovers a Myszkowski key with the default search settings and quadgram fitness.
+     * 
+     * @param ciphertext The ciphertext
+     * @param keyLength The number of columns
+     * @return The best key found
+     */
+    public static KeyCandidate solveMyszkowski(String ciphertext, int keyLength) {
+        return solve(ciphertext, keyLength, true, DEFAULT_RESTARTS, DEFAULT_ITERATIONS,
+                QuadgramScorer.english(), 0);
+    }
+    
+    /**
+     * Recovers a columnar or Myszkowski key.
+     * 
+     * @param ciphertext The ciphertext
+     * @param keyLength The number of columns
+     * @param repeatedLetters True to search Myszkowski keys (columns may share a number),
+     *        false for columnar keys (every column has its own number)
+     * @param restarts The number of independent searches, run in parallel
+     * @param iterations The number of keys tried by each search
+     * @param fitness The fitness function to score decryptions with
+     * @param seed The seed of the random number generator
+     * @return The best key found
+     */
+    public static KeyCandidate solve(String ciphertext, int keyLength, boolean repeatedLetters, int restarts,
+                                     int iterations, FitnessFunction fitness, long seed) {
+        if (keyLength < 1) {
+            throw new IllegalArgumentException("Key length must be at least 1");
+        }
+        if (restarts < 1 || iterations < 1) {
+            throw new IllegalArgumentException("Restarts and iterations must be at least 1");
+        }
+        
+        char[] cipher = ciphertext.toCharArray();
+        return IntStream.range(0, restarts).parallel()
+                .mapToObj(restart -> anneal(cipher, keyLength, repeatedLetters, iterations, fitness,
+                        new SplittableRandom(seed + restart)))
+                .max(Comparator.comparingDouble(KeyCandidate::score))
+                .get();
+    }
+    
+    /**
+     * One annealing run. The current and trial keys are two arrays that swap roles when
+     * a trial is accepted, and every trial is decrypted through the same key plan into
+     * the same buffer.
+     */
+    private static KeyCandidate anneal(char[] cipher, int keyLength, boolean repeatedLetters, int iterations,
+                                       FitnessFunction fitness, SplittableRandom random) {
+        char[] plain = new char[cipher.length];
+        KeyPlan plan = new KeyPlan(keyLength);
+        
+        int[] key = new int[keyLength];
+        for (int i = 0; i < keyLength; i++) {
+            int j = random.nextInt(i + 1);
+            key[i] = key[j];
+            key[j] = i;
+        }
+        double score = score(cipher, key, plan, plain, fitness);
+        
+        int[] bestKey = key.clone();
+        double bestScore = score;
+        int[] trial = new int[keyLength];
+        
+        for (int step = 0; step < iterations; step++) {
+            System.arraycopy(key, 0, trial, 0, keyLength);
+            mutate(trial, repeatedLetters, random);
+            double trialScore = score(cipher, trial, plan, plain, fitness);
+            
+            double temperature = START_TEMPERATURE * cipher.length * (iterations - step) / iterations;
+            if (trialScore >= score || random.nextDouble() < Math.exp((trialScore - score) / temperature)) {
+                int[] swap = key;
+                key = trial;
+                trial = swap;
+                score = trialScore;
+                
+                if (score > bestScore) {
+                    System.arraycopy(key, 0, bestKey, 0, keyLength);
+                    bestScore = score;
+                }
+            }
+        }
+        
+        plan.build(bestKey);
+        plan.decrypt(cipher, plain);
+        return new KeyCandidate(renumber(bestKey), bestScore, new String(plain));
+    }
+    
+    private static double score(char[] cipher, int[] key, KeyPlan plan, char[] plain, FitnessFunction fitness) {
+        plan.build(key);
+        plan.decrypt(cipher, plain);
+        return fitness.score(plain, 0, plain.length);
+    }
+    
+    /**
+     * The plan of a Myszkowski key (see MyszkowskiCipher.CompiledKey), rebuilt in place
+     * for each trial. Trial key numbers are all below the key length, so the columns are
+     * grouped with a counting sort indexed by number.
+     */
+    private static final class KeyPlan {
+        // Column indices, group by group in key order, ascending within each group
+        private final int[] columnOrder;
+        // Group g is columnOrder[groupStart[g]] to columnOrder[groupStart[g + 1] - 1]
+        private final int[] groupStart;
+        // Columns with each number, then the next free slot of each number's group
+        private final int[] next;
+        private int groups;
+        
+        KeyPlan(int keyLength) {
+            this.columnOrder = new int[keyLength];
+            this.groupStart = new int[keyLength + 1];
+            this.next = new int[keyLength];
+        }
+        
+        void build(int[] key) {
+            Arrays.fill(next, 0);
+            for (int number : key) {
+                next[number]++;
+            }
+            
+            // Every number in use starts a group, lowest number first
+            groups = 0;
+            int start = 0;
+            for (int number = 0; number < key.length; number++) {
+                int count = next[number];
+                if (count > 0) {
+                    groupStart[groups++] = start;
+                    next[number] = start;
+                    start += count;
+                }
+            }
+            groupStart[groups] = key.length;
+            
+            for (int column = 0; column < key.length; column++) {
+                columnOrder[next[key[column]]++] = column;
+            }
+        }
+        
+        void decrypt(char[] cipher, char[] plain) {
+            MyszkowskiCipher.decrypt(cipher, cipher.length, plain, columnOrder, groupStart, groups);
+        }
+    }
+    
+    /**
+     * Changes the key in place. Columnar keys stay permutations of 0 to length - 1;
+     * Myszkowski keys may also gain or lose repeated numbers.
+     */
+    private static void mutate(int[] key, boolean repeatedLetters, SplittableRandom random) {
+        int length = key.length;
+        if (length < 2) {
+            return;
+        }
+        int i = random.nextInt(length);
+        int j = random.nextInt(length - 1);
+        if (j >= i) {
+            j++;
+        }
+        
+        switch (random.nextInt(repeatedLetters ? 5 : 3)) {
+            case 0:
+                // Swap two columns
+                int swap = key[i];
+                key[i] = key[j];
+                key[j] = swap;
+                break;
+            case 1:
+                // Reverse the columns from i to j
+                for (int from = Math.min(i, j), to = Math.max(i, j); from < to; from++, to--) {
+                    int value = key[from];
+                    key[from] = key[to];
+                    key[to] = value;
+                }
+                break;
+            case 2:
+                // Move column i to position j
+                int moved = key[i];
+                if (i < j) {
+                    System.arraycopy(key, i + 1, key, i, j - i);
+                } else {
+                    System.arraycopy(key, j, key, j + 1, i - j);
+                }
+                key[j] = moved;
+                break;
+            case 3:
+                // Read column i together with column j
+                key[i] = key[j];
+                break;
+            default:
+                // Give column i a new number, which may split it from its group
+                key[i] = random.nextInt(length);
+                break;
+        }
+    }
+    
+    /**
+     * Renumbers a key to its ranks from 1, as MyszkowskiCipher numbers keyword letters.
+     */
+    private static int[] renumber(int[] key) {
+        int[] sorted = key.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        
+        int[] numbers = new int[key.length];
+        for (int i = 0; i < key.length; i++) {
+            numbers[i] = Arrays.binarySearch(sorted, 0, distinct, key[i]) + 1;
+        }
+        return numbers;
+    }
+    
+    /**
+     * Tries every registered route pattern on every grid whose size is the ciphertext
+     * length (as RouteCipher produces), scored with quadgram fitness.
+     * 
+     * @param ciphertext The ciphertext (whitespace is removed, as RouteCipher does)
+     * @param topK The number of results to return
+     * @return The best grids and patterns, best first, each with its plaintext
+     */
+    public static List<RouteCandidate> solveRoute(String ciphertext, int topK) {
+        return solveRoute(ciphertext, topK, QuadgramScorer.english());
+    }
+    
+    /**
+     * Tries every registered route pattern on every grid whose size is the ciphertext
+     * length (as RouteCipher produces).
+     * 
+     * @param ciphertext The ciphertext (whitespace is removed, as RouteCipher does)
+     * @param topK The number of results to return
+     * @param fitness The fitness function to score decryptions with
+     * @return The best grids and patterns, best first, each with its plaintext
+     */
+    public static List<RouteCandidate> solveRoute(String ciphertext, int topK, FitnessFunction fitness) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be at least 1");
+        }
+        
+        char[] cipher = ciphertext.replaceAll("\\s", "").toCharArray();
+        int length = cipher.length;
+        if (length == 0) {
+            throw new IllegalArgumentException("Ciphertext cannot be empty");
+        }
+        List<String> patterns = new ArrayList<>(RouteCipher.shapeNames());
+        
+        int[] rowCounts = IntStream.rangeClosed(1, length).filter(rows -> length % rows == 0).toArray();
+        
+        // Each grid shape is one task, decrypting every pattern into one buffer; the score
+        // of grid g with pattern p goes in scores[g * patterns + p]
+        double[] scores = new double[rowCounts.length * patterns.size()];
+        IntStream.range(0, rowCounts.length).parallel().forEach(g -> {
+            int rows = rowCounts[g];
+            int cols = length / rows;
+            char[] plain = new char[length];
+            for (int p = 0; p < patterns.size(); p++) {
+                int[] position = RouteCipher.route(rows, cols, patterns.get(p)).position;
+                for (int cell = 0; cell < length; cell++) {
+                    plain[cell] = cipher[position[cell]];
+                }
+                scores[g * patterns.size() + p] = fitness.score(plain, 0, length);
+            }
+        });
+        
+        // Only the best are decrypted; ties go to fewer rows, then the pattern name
+        List<Integer> best = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -scores[i]).thenComparingInt(i -> i))
+                .limit(topK)
+                .collect(Collectors.toList());
+        
+        String text = new String(cipher);
+        List<RouteCandidate> candidates = new ArrayList<>(best.size());
+        for (int i : best) {
+            int rows = rowCounts[i / patterns.size()];
+            String pattern = patterns.get(i % patterns.size());
+            candidates.add(new RouteCandidate(rows, length / rows, pattern, scores[i],
+                    RouteCipher.process(text, rows, length / rows, pattern, false)));
+        }
+        return candidates;
+    }
+    
+    public static void main(String[] args) {
+        String plaintext = "It was the best of times it was the worst of times it was the age of wisdom "
+                + "it was the age of foolishness it was the epoch of belief it was the epoch of incredulity "
+                + "it was the season of light it was the season of darkness";
+        
+        String ciphertext = MyszkowskiCipher.process(plaintext, "TOMATO", true);
+        KeyCandidate myszkowski = solveMyszkowski(ciphertext, 6);
+        System.out.println("Myszkowski keyword: " + myszkowski.keyword());
+        System.out.println("Plaintext: " + myszkowski.plaintext());
+        
+        ciphertext = MyszkowskiCipher.process(plaintext, "ZEBRAS", true);
+        KeyCandidate columnar = solveColumnar(ciphertext, 6);
+        System.out.println("Columnar keyword: " + columnar.keyword());
+        
+        ciphertext = RouteCipher.process(plaintext, 8, 20, "spiral", true);
+        RouteCandidate route = solveRoute(ciphertext, 1).get(0);
+        System.out.println("Route: " + route);
+        System.out.println("Plaintext: " + route.plaintext());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+/**
+ * Variable N-Gram Cipher Implementation
+ * This cipher substitutes groups of letters of mixed lengths (unigrams, bigrams,
+ * trigrams, ...) with other groups of letters. At each position the longest group in
+ * the table that matches is substituted; a letter that starts no group is kept as it is.
+ * 
+ * The table is compiled into a trie stored as one flat array of 26 child slots per node,
+ * and the substitutes into a second trie for decryption. Each step walks the trie from
+ * the current position, so the cost is linear in the text length (times at most the
+ * longest group) whatever the size of the table.
+ * 
+ * Decryption undoes encryption when the substitutes are parsed back the same way, which
+ * holds for example when they have the same lengths as their groups and no substitute is
+ * a prefix of a longer one.
+ */
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class VariableNGramCipher {
+    
+    /**
+     * Encrypts or decrypts text using variable-length N-Gram substitution.
+     * 
+     * @param text The text to encrypt/decrypt
+     * @param substitutionMap Map of letter groups to their substitutions
+     * @param encrypt True for encryption, false for decryption
+     * @return The encrypted/decrypted text
+     */
+    public static String process(String text, Map<String, String> substitutionMap, boolean encrypt) {
+        return compile(substitutionMap).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a substitution map into a reusable key. The map is copied, so later
+     * changes to it do not affect the compiled key.
+     * 
+     * @param substitutionMap Map of letter groups to their substitutions; keys and values
+     *        must be non-empty and contain only letters (either case), and no two keys may
+     *        have the same substitution
+     * @return The compiled key
+     */
+    public static CompiledKey compile(Map<String, String> substitutionMap) {
+        Map<String, String> forward = new HashMap<>();
+        Map<String, String> inverse = new HashMap<>();
+        for (Map.Entry<String, String> entry : substitutionMap.entrySet()) {
+            String key = checkGroup(entry.getKey());
+            String value = checkGroup(entry.getValue());
+            if (forward.put(key, value) != null) {
+                throw new IllegalArgumentException("Letter group \"" + key + "\" appears more than once");
+            }
+            String previous = inverse.put(value, key);
+            if (previous != null) {
+                throw new IllegalArgumentException("\"" + previous + "\" and \"" + key
+                        + "\" have the same substitution \"" + value + "\"");
+            }
+        }
+        
+        return new CompiledKey(new Trie(forward), new Trie(inverse));
+    }
+    
+    /**
+     * A compiled variable N-Gram table. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey implements Cipher {
+        private final Trie forward;
+        private final Trie inverse;
+        
+        private CompiledKey(Trie forward, Trie inverse) {
+            this.forward = forward;
+            this.inverse = inverse;
+        }
+        
+        @Override
+        public String encrypt(String text) {
+            return forward.substitute(Letters.upperLetters(text));
+        }
+        
+        @Override
+        public String decrypt(String text) {
+            return inverse.substitute(Letters.upperLetters(text));
+        }
+    }
+    
+    /**
+     * A trie over the letters A-Z. Node i's child for letter c is children[i * 26 + c]
+     * (0 for none, as the root is never a child), and output[i] is the substitute of the
+     * group that ends at node i, if any.
+     */
+    private static final class Trie {
+        private final int[] children;
+        private final char[][] output;
+        // Longest substitute divided by the length of its group, rounded up
+        private final int growth;
+        
+        Trie(Map<String, String> table) {
+            int nodes = 1;
+            for (String key : table.keySet()) {
+                nodes += key.length();
+            }
+            
+            int[] children = new int[nodes * 26];
+            char[][] output = new char[nodes][];
+            int used = 1;
+            int growth = 1;
+            
+            for (Map.Entry<String, String> entry : table.entrySet()) {
+                String key = entry.getKey();
+                int node = 0;
+                for (int i = 0; i < key.length(); i++) {
+                    int slot = node * 26 + (key.charAt(i) - 'A');
+                    if (children[slot] == 0) {
+                        children[slot] = used++;
+                    }
+                    node = children[slot];
+                }
+                output[node] = entry.getValue().toCharArray();
+                growth = Math.max(growth, (entry.getValue().length() + key.length() - 1) / key.length());
+            }
+            
+            this.children = Arrays.copyOf(children, used * 26);
+            this.output = Arrays.copyOf(output, used);
+            this.growth = growth;
+        }
+        
+        /**
+         * Substitutes the longest matching group at each position, left to right.
+         */
+        String substitute(char[] letters) {
+            char[] result = new char[(int) Math.min(Integer.MAX_VALUE - 8, (long) letters.length * growth)];
+            int length = 0;
+            int position = 0;
+            
+            while (position < letters.length) {
+                // Walk as far as the text matches, remembering the last complete group
+                int node = 0;
+                int matchEnd = -1;
+                char[] match = null;
+                for (int i = position; i < letters.length; i++) {
+                    node = children[node * 26 + (letters[i] - 'A')];
+                    if (node == 0) {
+                        break;
+                    }
+                    if (output[node] != null) {
+                        matchEnd = i + 1;
+                        match = output[node];
+                    }
+                }
+                
+                if (match != null) {
+                    System.arraycopy(match, 0, result, length, match.length);
+                    length += match.length;
+                    position = matchEnd;
+                } else {
+                    result[length++] = letters[position++];
+                }
+            }
+            
+            return new String(result, 0, length);
+        }
+    }
+    
+    private static String checkGroup(String group) {
+        String upperGroup = group.toUpperCase();
+        if (upperGroup.isEmpty()) {
+            throw new IllegalArgumentException("Letter groups cannot be empty");
+        }
+        for (int i = 0; i < upperGroup.length(); i++) {
+            char character = upperGroup.charAt(i);
+            if (character < 'A' || character > 'Z') {
+                throw new IllegalArgumentException("Letter group \"" + group + "\" must contain only the letters A-Z");
+            }
+        }
+        return upperGroup;
+    }
+    
+    public static void main(String[] args) {
+        String plaintext = "THE QUICK BROWN FOX";
+        Map<String, String> table = new HashMap<>();
+        table.put("THE", "XQZ");
+        table.put("TH", "JV");
+        table.put("Q", "K");
+        table.put("K", "Q");
+        table.put("OW", "YB");
+        table.put("FOX", "MDP");
+        
+        String encrypted = process(plaintext, table, true);
+        String decrypted = process(encrypted, table, false);
+        
+        System.out.println("Plaintext: " + plaintext);
+        System.out.println("Encrypted: " + encrypted);
+        System.out.println("Decrypted: " + decrypted);
+    }
+}
\ No newline at end of file
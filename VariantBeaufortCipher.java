@@ -0,0 +1,60 @@
+/**
+ * Variant Beaufort Cipher Implementation
+ * This cipher shifts each letter back by the keyword letter: it encrypts the way the
+ * Vigenere cipher decrypts, and decrypts the way it encrypts.
+ */
+public class VariantBeaufortCipher {
+    
+    /**
+     * Encrypts or decrypts text using the Variant Beaufort cipher.
+     * 
+     * @param text The text to encrypt/decrypt
+     * @param keyword The keyword used for shifting
+     * @param encrypt True for encryption, false for decryption
+     * @return The encrypted/decrypted text
+     */
+    public static String process(String text, String keyword, boolean encrypt) {
+        return compile(keyword).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a keyword into a reusable key.
+     * 
+     * @param keyword The keyword used for shifting
+     * @return The compiled key
+     */
+    public static CompiledKey compile(String keyword) {
+        String cleanKeyword = keyword.toUpperCase().replaceAll("[^A-Z]", "");
+        
+        if (cleanKeyword.isEmpty()) {
+            throw new IllegalArgumentException("Keyword cannot be empty");
+        }
+        
+        int[] shifts = new int[cleanKeyword.length()];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = cleanKeyword.charAt(i) - 'A';
+        }
+        return new CompiledKey(shifts);
+    }
+    
+    /**
+     * A compiled Variant Beaufort key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey extends PolyalphabeticKey {
+        private CompiledKey(int[] shifts) {
+            super(shifts, Tableau.VARIANT_BEAUFORT);
+        }
+    }
+    
+    public static void main(String[] args) {
+        String plaintext = "HELLO";
+        String keyword = "KEY";
+        
+        String encrypted = process(plaintext, keyword, true);
+        String decrypted = process(encrypted, keyword, false);
+        
+        System.out.println("Plaintext: " + plaintext);
+        System.out.println("Encrypted: " + encrypted);
+        System.out.println("Decrypted: " + decrypted);
+    }
+}
\ No newline at end of file
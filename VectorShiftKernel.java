@@ -0,0 +1,73 @@
+/**
+ * Vector Shift Kernel
+ * Vector API implementation of ShiftKernel.shift(). Only loaded when the
+ * jdk.incubator.vector module is present.
+ */
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorShiftKernel {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    
+    private VectorShiftKernel() {
+    }
+    
+    /**
+     * Shifts the ASCII letters of a byte range in place, a full vector at a time.
+     * 
+     * Non-letters do not advance the key, so each letter lane takes the key position of
+     * the number of letter lanes before it. That exclusive prefix count is computed in the
+     * vector by log2(lanes) shifted adds, and used as a shuffle that spreads the next key
+     * stream entries over the letter lanes; non-letter lanes are blended back unchanged.
+     * A single-letter key (Caesar), all-letter vectors and letter-free vectors skip the
+     * prefix count.
+     */
+    static int shift(byte[] buf, int off, int len, byte[] keyStream, int period, int keyIndex) {
+        int lanes = SPECIES.length();
+        int end = off + len;
+        int i = off;
+        ByteVector zero = ByteVector.zero(SPECIES);
+        ByteVector fixedKey = period == 1 ? ByteVector.broadcast(SPECIES, keyStream[0]) : null;
+        
+        for (; i <= end - lanes; i += lanes) {
+            ByteVector v = ByteVector.fromArray(SPECIES, buf, i);
+            VectorMask<Byte> upper = v.compare(VectorOperators.GE, (byte) 'A')
+                    .and(v.compare(VectorOperators.LE, (byte) 'Z'));
+            VectorMask<Byte> lower = v.compare(VectorOperators.GE, (byte) 'a')
+                    .and(v.compare(VectorOperators.LE, (byte) 'z'));
+            VectorMask<Byte> letters = upper.or(lower);
+            
+            ByteVector key;
+            if (fixedKey != null) {
+                key = fixedKey;
+            } else if (letters.allTrue()) {
+                key = ByteVector.fromArray(SPECIES, keyStream, keyIndex);
+                keyIndex = (keyIndex + lanes) % period;
+            } else if (!letters.anyTrue()) {
+                continue;
+            } else {
+                // Inclusive prefix count of the letter lanes, less the lane itself
+                ByteVector isLetter = zero.blend((byte) 1, letters);
+                ByteVector count = isLetter;
+                for (int step = 1; step < lanes; step <<= 1) {
+                    count = count.add(zero.slice(lanes - step, count));
+                }
+                ByteVector before = count.sub(isLetter);
+                
+                key = ByteVector.fromArray(SPECIES, keyStream, keyIndex).rearrange(before.toShuffle());
+                keyIndex = (keyIndex + letters.trueCount()) % period;
+            }
+            
+            // (x - base + shift) mod 26 + base, with the mod as a masked subtraction
+            ByteVector base = ByteVector.broadcast(SPECIES, (byte) 'a').blend((byte) 'A', upper);
+            ByteVector x = v.sub(base).add(key);
+            x = x.sub((byte) 26, x.compare(VectorOperators.GE, (byte) 26));
+            v.blend(x.add(base), letters).intoArray(buf, i);
+        }
+        
+        // Tail shorter than one vector
+        return ShiftKernel.scalarShift(buf, i, end - i, keyStream, period, keyIndex);
+    }
+}
\ No newline at end of file
@@ -13,38 +13,36 @@ public class VigenereCipher {
      * @return The encrypted/decrypted text
      */
     public static String process(String text, String keyword, boolean encrypt) {
-        StringBuilder result = new StringBuilder();
+        return compile(keyword).process(text, encrypt);
+    }
+    
+    /**
+     * Compiles a keyword into a reusable key.
+     * 
+     * @param keyword The keyword used for shifting
+     * @return The compiled key
+     */
+    public static CompiledKey compile(String keyword) {
         String cleanKeyword = keyword.toUpperCase().replaceAll("[^A-Z]", "");
         
         if (cleanKeyword.isEmpty()) {
             throw new IllegalArgumentException("Keyword cannot be empty");
         }
         
-        int keyIndex = 0;
-        
-        for (char character : text.toCharArray()) {
-            if (Character.isLetter(character)) {
-                char base = Character.isUpperCase(character) ? 'A' : 'a';
-                char keyChar = cleanKeyword.charAt(keyIndex % cleanKeyword.length());
-                int shift = keyChar - 'A';
-                
-                int textValue = character - base;
-                int resultValue;
-                
-                if (encrypt) {
-                    resultValue = (textValue + shift) % 26;
-                } else {
-                    resultValue = (textValue - shift + 26) % 26;
-                }
-                
-                result.append((char) (resultValue + base));
-                keyIndex++;
-            } else {
-                result.append(character);
-            }
+        int[] shifts = new int[cleanKeyword.length()];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = cleanKeyword.charAt(i) - 'A';
+        }
+        return new CompiledKey(shifts);
+    }
+    
+    /**
+     * A compiled Vigenere key. Immutable and safe to share between threads.
+     */
+    public static final class CompiledKey extends PolyalphabeticKey {
+        private CompiledKey(int[] shifts) {
+            super(shifts, Tableau.VIGENERE);
         }
-        
-        return result.toString();
     }
     
     public static void main(String[] args) {